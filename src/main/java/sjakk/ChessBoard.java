@@ -1,24 +1,49 @@
 package sjakk;
 
-import java.util.ArrayList;
 import java.util.Iterator;
 
 import sjakk.pieces.*;
+import sjakk.utils.Bitboards;
 import sjakk.utils.FENParser;
+import sjakk.utils.MagicBitboards;
+import sjakk.utils.MaterialSignature;
+import sjakk.utils.PieceCode;
+import sjakk.utils.Zobrist;
 
 /**
- * This class represents the chess board. It contains a 2D array of pieces, and
- * have all sorts methods to use.
+ * This class represents the chess board. The position is kept in a
+ * {@code byte[64]} mailbox of {@link PieceCode piece codes}, together with one
+ * bitboard per piece type and color, and one occupancy bitboard per color, so
+ * pieces can answer attack and occupancy queries with single bit operations.
+ * There are no {@link Piece} objects on the board: a piece is a view of a square
+ * that is created when it is looked up, for the user interface and the move
+ * rules of each piece, and reads its type and color from the mailbox. The move
+ * counts of the pieces and the last moved piece are read from the move history.
  * 
  * @see Piece
  * @see Player
  */
 public class ChessBoard implements Iterable<Piece> {
 
-    private final ArrayList<ArrayList<Piece>> board;
-    private final ArrayList<String> moves = new ArrayList<String>();
+    private final byte[] mailbox = new byte[64];
+    private final long[][] pieceBitboards = new long[2][PieceType.values().length];
+    private final long[] colorBitboards = new long[2];
+    private long occupied = Bitboards.EMPTY;
+    private int modifications = 0;
+    private long zobristKey = 0;
+    private long materialSignature = MaterialSignature.EMPTY;
+    private final int[] kingSquares = { -1, -1 };
+    private final long[] attackMaps = new long[2];
+    private final int[] attackMapsModifications = { -1, -1 };
+    private final LegalityMasks[] legalityMasks = new LegalityMasks[2];
+    private final int[] legalityMasksModifications = new int[2];
+    private boolean hasLegalMove;
+    private long hasLegalMoveKey;
+    private boolean hasLegalMoveCached = false;
+    private final MoveList moves;
+    private final UndoStack undoStack;
     private Piece selectedPiece;
-    private Piece lastMovedPiece;
+    private Position enPassantTarget = null;
     private Player white;
     private Player black;
     private Player turn;
@@ -26,7 +51,7 @@ public class ChessBoard implements Iterable<Piece> {
     private int fullMoves = 1;
     private boolean gameFinished = false;
     private String gameMessage = "";
-    private Pawn upgradablePawn = null;
+    private PositionSnapshot lastSnapshot = null;
 
     /**
      * Creates a new chess board with two new players.
@@ -39,16 +64,11 @@ public class ChessBoard implements Iterable<Piece> {
      * Creates a new chess board with the two given players.
      */
     public ChessBoard(Player white, Player black) {
-        board = new ArrayList<ArrayList<Piece>>();
-        for (int i = 0; i < 8; i++) {
-            board.add(new ArrayList<Piece>());
-            for (int j = 0; j < 8; j++) {
-                board.get(i).add(null);
-            }
-        }
-
         this.white = white;
         this.black = black;
+        // The history grows with the game, most boards never see many moves
+        moves = new MoveList(8);
+        undoStack = new UndoStack();
 
         if (white == null)
             this.white = new Player(PieceColor.WHITE);
@@ -59,16 +79,164 @@ public class ChessBoard implements Iterable<Piece> {
     }
 
     /**
-     * Gets the piece at the given position.
+     * Creates a deep copy of a chess board. The position and every player is
+     * copied, so the copy can be used independently of the original, for example
+     * in another thread.
+     * 
+     * @param other The board to copy.
+     * @see #copy()
+     */
+    private ChessBoard(ChessBoard other) {
+        white = new Player(other.white);
+        black = new Player(other.black);
+        turn = (other.turn == other.white ? white : black);
+
+        System.arraycopy(other.mailbox, 0, mailbox, 0, mailbox.length);
+
+        for (int color = 0; color < 2; color++) {
+            System.arraycopy(other.pieceBitboards[color], 0, pieceBitboards[color], 0, pieceBitboards[color].length);
+        }
+        System.arraycopy(other.colorBitboards, 0, colorBitboards, 0, colorBitboards.length);
+        occupied = other.occupied;
+        modifications = other.modifications;
+        System.arraycopy(other.kingSquares, 0, kingSquares, 0, kingSquares.length);
+        // The cached attack maps and legality masks only hold bitboards, so they can
+        // be shared
+        System.arraycopy(other.attackMaps, 0, attackMaps, 0, attackMaps.length);
+        System.arraycopy(other.attackMapsModifications, 0, attackMapsModifications, 0,
+                attackMapsModifications.length);
+        System.arraycopy(other.legalityMasks, 0, legalityMasks, 0, legalityMasks.length);
+        System.arraycopy(other.legalityMasksModifications, 0, legalityMasksModifications, 0,
+                legalityMasksModifications.length);
+        hasLegalMove = other.hasLegalMove;
+        hasLegalMoveKey = other.hasLegalMoveKey;
+        hasLegalMoveCached = other.hasLegalMoveCached;
+        zobristKey = other.zobristKey;
+        materialSignature = other.materialSignature;
+
+        moves = new MoveList(other.moves);
+        undoStack = new UndoStack(other.undoStack);
+        selectedPiece = (other.selectedPiece == null ? null : getPosition(other.selectedPiece.getPos()));
+        enPassantTarget = other.enPassantTarget;
+        halfMoves = other.halfMoves;
+        fullMoves = other.fullMoves;
+        gameFinished = other.gameFinished;
+        gameMessage = other.gameMessage;
+        lastSnapshot = other.lastSnapshot;
+    }
+
+    /**
+     * Creates a deep copy of the board, with its own position and players. The
+     * copy has the same position, move history and game state, and moves made on
+     * it can be taken back past the point it was copied at. Unlike a round trip
+     * through a FEN string, the move counts of the pieces and the last moved piece
+     * are kept.
+     * 
+     * @return The copy.
+     */
+    public ChessBoard copy() {
+        return new ChessBoard(this);
+    }
+
+    /**
+     * Takes an immutable snapshot of the position. The snapshot shares the pieces
+     * of a color with the previous snapshot taken from this board if they have not
+     * changed since, so taking a snapshot after every move is cheap.
+     * 
+     * @return The snapshot.
+     */
+    public PositionSnapshot getSnapshot() {
+        final PositionSnapshot previous = lastSnapshot;
+        final long[] whitePieces = (previous == null ? pieceBitboards[0].clone()
+                : previous.share(true, pieceBitboards[0]));
+        final long[] blackPieces = (previous == null ? pieceBitboards[1].clone()
+                : previous.share(false, pieceBitboards[1]));
+        lastSnapshot = new PositionSnapshot(whitePieces, blackPieces, turn.isWhite(), getCastlingBits(),
+                enPassantTarget == null ? -1 : Bitboards.square(enPassantTarget), halfMoves, fullMoves,
+                getZobristKey());
+        return lastSnapshot;
+    }
+
+    /**
+     * Sets up the position of a snapshot on the board. Like when parsing a FEN
+     * string, the move history is cleared, so the pieces have not moved and moves
+     * from before can not be taken back.
+     * 
+     * @param snapshot The snapshot to set up.
+     */
+    public void applySnapshot(PositionSnapshot snapshot) {
+        long pieces = occupied;
+        while (pieces != 0) {
+            setPieceCode(Bitboards.lowestSquare(pieces), PieceCode.EMPTY);
+            pieces = Bitboards.popLowest(pieces);
+        }
+        for (final PieceType type : PieceType.values()) {
+            for (final boolean isWhite : new boolean[] { true, false }) {
+                final byte code = PieceCode.of(isWhite, type);
+                long bitboard = snapshot.getBitboard(type, isWhite);
+                while (bitboard != 0) {
+                    setPieceCode(Bitboards.lowestSquare(bitboard), code);
+                    bitboard = Bitboards.popLowest(bitboard);
+                }
+            }
+        }
+
+        setTurn(snapshot.isWhiteToMove() ? PieceColor.WHITE : PieceColor.BLACK);
+        setCastlingBits(snapshot.getCastlingBits());
+        enPassantTarget = snapshot.getEnPassantTarget();
+        halfMoves = snapshot.getHalfMoves();
+        fullMoves = snapshot.getFullMoves();
+
+        moves.clear();
+        if (!snapshot.isWhiteToMove())
+            moves.add(Move.NONE);
+        undoStack.clear();
+        selectedPiece = null;
+        gameFinished = false;
+        gameMessage = "";
+        lastSnapshot = snapshot;
+    }
+
+    /**
+     * Gets the piece at the given position. Every call creates a new view of the
+     * square, so code that runs often should read the square with
+     * {@link #getPieceCode(int)} instead.
      * 
      * @param position The position to get the piece from.
-     * @return The piece at the given position, or null if the position is out of
-     *         bounds.
+     * @return A view of the piece at the given position, or null if the position
+     *         is empty or out of bounds.
+     * @see Piece#of(ChessBoard, int)
      */
     public Piece getPosition(Position position) {
         if (position.getX() < 0 || position.getX() > 7 || position.getY() < 0 || position.getY() > 7)
             return null;
-        return board.get(position.getY()).get(position.getX());
+        return Piece.of(this, Bitboards.square(position));
+    }
+
+    /**
+     * Gets the code of the piece on a square.
+     * 
+     * @param square The square index.
+     * @return The code of the piece, or {@link PieceCode#EMPTY} if the square is
+     *         empty.
+     * @see PieceCode
+     */
+    public byte getPieceCode(int square) {
+        return mailbox[square];
+    }
+
+    /**
+     * Gets the piece on a square. Like {@link #getPosition(Position)}, every call
+     * creates a new view, so code that runs often should read
+     * {@link #getPieceCode(int)} instead.
+     * 
+     * @param square The square index, from 0 (a1) to 63 (h8).
+     * @return A view of the piece on the square, or null if it is empty.
+     * @see Bitboards#square(Position)
+     * @see Piece#of(ChessBoard, int)
+     */
+    public Piece getPosition(int square) {
+        return Piece.of(this, square);
     }
 
     /**
@@ -78,62 +246,405 @@ public class ChessBoard implements Iterable<Piece> {
      * @param piece    The piece to set at the given position.
      */
     public void setPosition(Position position, Piece piece) {
-        if (getPosition(position) == piece)
+        setPosition(Bitboards.square(position), piece);
+    }
+
+    /**
+     * Sets the piece on a square.
+     * 
+     * @param square The square index, from 0 (a1) to 63 (h8).
+     * @param piece  The piece to set on the square, or null to empty it.
+     */
+    public void setPosition(int square, Piece piece) {
+        setPieceCode(square, piece == null ? PieceCode.EMPTY : PieceCode.of(piece.isWhite(), piece.getType()));
+    }
+
+    /**
+     * Sets the code of the piece on a square. This is where every change to the
+     * position goes through, and it updates the bitboards, the Zobrist key and the
+     * material signature along with the mailbox.
+     * 
+     * @param square The square index, from 0 (a1) to 63 (h8).
+     * @param code   The code of the piece, or {@link PieceCode#EMPTY} to empty the
+     *               square.
+     * @see PieceCode
+     */
+    public void setPieceCode(int square, byte code) {
+        final byte previous = mailbox[square];
+        if (previous == code)
             return;
-        board.get(position.getY()).set(position.getX(), piece);
+        final long bit = Bitboards.bit(square);
+        if (previous != PieceCode.EMPTY)
+            toggleBitboards(previous, bit);
+        if (code != PieceCode.EMPTY)
+            toggleBitboards(code, bit);
+        zobristKey ^= pieceKey(previous, square) ^ pieceKey(code, square);
+        materialSignature += material(code, square) - material(previous, square);
+        mailbox[square] = code;
+        modifications++;
+
+        if (PieceCode.is(previous, PieceType.KING))
+            updateKingSquare(PieceCode.isWhite(previous));
+        if (PieceCode.is(code, PieceType.KING))
+            updateKingSquare(PieceCode.isWhite(code));
     }
 
     /**
-     * Moves a piece to a new position. Updates the information on the board and for
-     * the pieces.
+     * Gets the square of the king of a color.
      * 
-     * @param piece    The piece to move.
-     * @param to       The position to move the piece to.
-     * @param isCastle Whether the move is a castle move. If it is a castle-move,
-     *                 the move count, list and turn is only modified if it is the
-     *                 king which moves.
+     * @param white Whether to get the white or the black king.
+     * @return The square index of the king, or -1 if there is no king of the color
+     *         on the board.
      */
-    public void move(Piece piece, Position to, boolean isCastle) {
-        if (!piece.isValidMove(to) && !isCastle)
-            throw new IllegalArgumentException("Invalid move");
+    public int getKingSquare(boolean white) {
+        return kingSquares[Bitboards.colorIndex(white)];
+    }
 
-        final Position originalPos = piece.getPos();
-        boolean pieceWasCaptured = (getPosition(to) != null);
+    /**
+     * Gets whether a square is attacked by a color.
+     * 
+     * @param square  The square index to check.
+     * @param byWhite Whether to check for white or black attackers.
+     * @return {@code true} if a piece of the color attacks the square.
+     * @see #getAttackers(int, boolean, long)
+     */
+    public boolean isAttacked(int square, boolean byWhite) {
+        return isAttacked(square, byWhite, occupied);
+    }
 
-        setPosition(piece.getPos(), null);
-        setPosition(to, piece);
-        piece.setPos(to);
+    /**
+     * Gets whether a square is attacked by a color, with the given occupancy
+     * blocking the sliding pieces.
+     * 
+     * @param square   The square index to check.
+     * @param byWhite  Whether to check for white or black attackers.
+     * @param occupied The occupied squares to use for blocking the sliding pieces.
+     * @return {@code true} if a piece of the color attacks the square.
+     * @see #getAttackers(int, boolean, long)
+     */
+    public boolean isAttacked(int square, boolean byWhite, long occupied) {
+        return getAttackers(square, byWhite, occupied) != 0;
+    }
 
-        handleCastlingDisabling(piece, originalPos);
+    /**
+     * Gets the bitboard of the given piece type and color.
+     * 
+     * @param type  The type of the pieces.
+     * @param white Whether to get the white or the black pieces.
+     * @return The bitboard with the squares of the pieces set.
+     */
+    public long getBitboard(PieceType type, boolean white) {
+        return pieceBitboards[Bitboards.colorIndex(white)][type.ordinal()];
+    }
 
-        pieceWasCaptured |= handleEnPassantMove(piece);
+    /**
+     * Gets the bitboard of every square occupied by a color.
+     * 
+     * @param white Whether to get the white or the black occupancy.
+     * @return The bitboard with the squares of the pieces of the color set.
+     */
+    public long getOccupancy(boolean white) {
+        return colorBitboards[Bitboards.colorIndex(white)];
+    }
 
-        lastMovedPiece = piece;
-        piece.addMoveCount();
+    /**
+     * Gets the bitboard of every occupied square on the board.
+     * 
+     * @return The bitboard with the squares of all pieces set.
+     */
+    public long getOccupancy() {
+        return occupied;
+    }
 
-        if (!isCastle || piece instanceof King) {
-            moves.add(originalPos.toString() + to.toString());
-            handleHalfMove(piece);
-            handleFullMove(piece, pieceWasCaptured);
-            turn = (turn == white ? black : white);
-        }
+    /**
+     * Gets the pieces of a color that attack a square. The attacks are cast
+     * outwards from the square, so only the pieces that can actually reach it are
+     * looked at.
+     * 
+     * @param square   The square index to check.
+     * @param byWhite  Whether to get the white or the black attackers.
+     * @param occupied The occupied squares to use for blocking the sliding pieces.
+     * @return The bitboard of the attacking pieces.
+     */
+    public long getAttackers(int square, boolean byWhite, long occupied) {
+        final long queens = getBitboard(PieceType.QUEEN, byWhite);
+        // A white pawn attacks the square if a black pawn on the square would attack it
+        return (Bitboards.PAWN_ATTACKS[Bitboards.colorIndex(!byWhite)][square]
+                & getBitboard(PieceType.PAWN, byWhite))
+                | (Bitboards.KNIGHT_ATTACKS[square] & getBitboard(PieceType.KNIGHT, byWhite))
+                | (Bitboards.KING_ATTACKS[square] & getBitboard(PieceType.KING, byWhite))
+                | (MagicBitboards.bishopAttacks(square, occupied) & (getBitboard(PieceType.BISHOP, byWhite) | queens))
+                | (MagicBitboards.rookAttacks(square, occupied) & (getBitboard(PieceType.ROOK, byWhite) | queens));
+    }
 
-        if (piece instanceof Pawn && (to.getY() == 0 || to.getY() == 7)) {
-            setPromotePawn((Pawn) piece);
+    /**
+     * Gets every square attacked by a color. The king of the other color does not
+     * block the sliding pieces, so the map tells exactly which squares that king
+     * can not move to. The map is kept per position, and is only built again from
+     * the bitboards when the board has changed.
+     * 
+     * @param byWhite Whether to get the squares attacked by white or by black.
+     * @return The bitboard of attacked squares.
+     */
+    public long getAttackMap(boolean byWhite) {
+        final int color = Bitboards.colorIndex(byWhite);
+        if (attackMapsModifications[color] != modifications) {
+            attackMaps[color] = computeAttackMap(byWhite);
+            attackMapsModifications[color] = modifications;
         }
+        return attackMaps[color];
+    }
 
-        checkGameFinished();
+    /**
+     * Gets the pins and checks against the king of a color. They are only computed
+     * again when the board has changed.
+     * 
+     * @param white Whether to get the masks for the white or the black king.
+     * @return The legality masks.
+     * @see LegalityMasks
+     */
+    public LegalityMasks getLegalityMasks(boolean white) {
+        final int color = Bitboards.colorIndex(white);
+        if (legalityMasks[color] == null || legalityMasksModifications[color] != modifications) {
+            legalityMasks[color] = new LegalityMasks(this, white);
+            legalityMasksModifications[color] = modifications;
+        }
+        return legalityMasks[color];
     }
 
     /**
-     * Moves a piece. Calls the other move-method with castleflag false.
+     * Moves a piece, if the move is legal. This is the checked path for moves from
+     * the user. Updates the information on the board and for the pieces, and the
+     * rook is moved along with the king when castling. The move can be taken back
+     * with {@link #unmakeMove()}.
      * 
      * @param piece The piece to move.
      * @param to    The position to move the piece to.
-     * @see #move(Piece, Position, boolean)
+     * @throws IllegalArgumentException if the move is not legal.
+     * @see #playTrustedMove(int)
      */
     public void move(Piece piece, Position to) {
-        move(piece, to, false);
+        if (!piece.isValidMove(to))
+            throw new IllegalArgumentException("Illegal move");
+
+        applyMove(piece.getPos(), to, null);
+        checkGameFinished();
+    }
+
+    /**
+     * Plays a packed move that is already known to be legal, like a move from
+     * {@link #generateLegalMoves(MoveList)} or from a game that is replayed. The
+     * move is <b>not</b> validated, but otherwise it is played like
+     * {@link #move(Piece, Position)}, so the game is checked for being finished
+     * afterwards. Playing an illegal move this way leaves the board in an
+     * undefined state.
+     * 
+     * @param move The move.
+     * @throws IllegalArgumentException if there is no piece to move.
+     * @see #isLegal(int)
+     */
+    public void playTrustedMove(int move) {
+        final Position from = Bitboards.toPosition(Move.getFrom(move));
+        if (mailbox[Move.getFrom(move)] == PieceCode.EMPTY)
+            throw new IllegalArgumentException("No piece at " + from);
+        applyMove(from, Bitboards.toPosition(Move.getTo(move)), Move.getPromotion(move));
+        checkGameFinished();
+    }
+
+    /**
+     * Makes a move on the board so that it can be taken back with
+     * {@link #unmakeMove()}. The move is <b>not</b> validated, and the game is not
+     * checked for being finished, so this is meant for search and analysis of
+     * moves that are already known to be legal.
+     * 
+     * @param from      The position of the piece to move.
+     * @param to        The position to move the piece to.
+     * @param promotion The type to promote a pawn to when it reaches the last
+     *                  rank, or null to leave it as the upgradable pawn.
+     * @throws IllegalArgumentException if there is no piece at {@code from}.
+     */
+    public void makeMove(Position from, Position to, PieceType promotion) {
+        if (mailbox[Bitboards.square(from)] == PieceCode.EMPTY)
+            throw new IllegalArgumentException("No piece at " + from);
+        applyMove(from, to, promotion);
+    }
+
+    /**
+     * Makes a packed move on the board so that it can be taken back with
+     * {@link #unmakeMove()}. Like {@link #makeMove(Position, Position, PieceType)},
+     * the move is <b>not</b> validated.
+     * 
+     * @param move The move, as generated by {@link #generateLegalMoves(MoveList)}.
+     * @throws IllegalArgumentException if there is no piece to move.
+     * @see Move
+     */
+    public void makeMove(int move) {
+        makeMove(Bitboards.toPosition(Move.getFrom(move)), Bitboards.toPosition(Move.getTo(move)),
+                Move.getPromotion(move));
+    }
+
+    /**
+     * Fills the list with every legal move of the player whos turn it is, as packed
+     * moves. The list is cleared first.
+     * 
+     * @param moves The list to fill.
+     * @see MoveGenerator
+     */
+    public void generateLegalMoves(MoveList moves) {
+        MoveGenerator.generateLegalMoves(this, moves);
+    }
+
+    /**
+     * Fills the list with the legal captures, en passant captures and promotions
+     * of the player whos turn it is, as packed moves. The list is cleared first.
+     * 
+     * @param moves The list to fill.
+     * @see MoveGenerator#generateLegalCaptures(ChessBoard, MoveList)
+     */
+    public void generateLegalCaptures(MoveList moves) {
+        MoveGenerator.generateLegalCaptures(this, moves);
+    }
+
+    /**
+     * Fills the list with the legal moves of the player whos turn it is that do
+     * not capture or promote, as packed moves. The list is cleared first.
+     * 
+     * @param moves The list to fill.
+     * @see MoveGenerator#generateLegalQuietMoves(ChessBoard, MoveList)
+     */
+    public void generateLegalQuietMoves(MoveList moves) {
+        MoveGenerator.generateLegalQuietMoves(this, moves);
+    }
+
+    /**
+     * Gets every square the piece on a square can legally move to. This never
+     * changes the board, so it can be asked about any piece at any time.
+     * 
+     * @param square The square index of the piece.
+     * @return The bitboard of the squares the piece can move to, or
+     *         {@link Bitboards#EMPTY} if the square is empty.
+     * @see MoveGenerator#getLegalTargets(ChessBoard, int)
+     */
+    public long getLegalTargets(int square) {
+        return MoveGenerator.getLegalTargets(this, square);
+    }
+
+    /**
+     * Checks if a move is legal for the player whos turn it is. Only the given
+     * move is checked, against the attack maps and pins of the position, so no
+     * moves are generated and the board is not changed.
+     * 
+     * @param from      The position of the piece to move.
+     * @param to        The position to move the piece to.
+     * @param promotion The type to promote a pawn to when it reaches the last
+     *                  rank. May be null, to choose the type after the move. Must
+     *                  be null for any other move.
+     * @return {@code true} if the move is legal.
+     */
+    public boolean isLegal(Position from, Position to, PieceType promotion) {
+        if (!from.insideBoard() || !to.insideBoard() || gameFinished)
+            return false;
+        final int square = Bitboards.square(from);
+        if (!Bitboards.isSet(getOccupancy(turn.isWhite()), square)
+                || (getLegalTargets(square) & Bitboards.bit(to)) == 0)
+            return false;
+
+        if (promotion == null)
+            return true;
+        return promotes(square, to) && promotion != PieceType.PAWN && promotion != PieceType.KING;
+    }
+
+    /**
+     * Checks if a packed move is legal for the player whos turn it is. A move to
+     * the last rank by a pawn has to say what it promotes to, and the flag of the
+     * move has to match what the move is: a castle is a king moving two files, and
+     * an en passant capture is a pawn moving diagonally onto the en passant
+     * target.
+     * 
+     * @param move The move.
+     * @return {@code true} if the move is legal.
+     * @see #isLegal(Position, Position, PieceType)
+     */
+    public boolean isLegal(int move) {
+        final int from = Move.getFrom(move);
+        final Position to = Bitboards.toPosition(Move.getTo(move));
+        return isLegal(Bitboards.toPosition(from), to, Move.getPromotion(move))
+                && Move.getFlag(move) == getFlag(from, to);
+    }
+
+    /**
+     * Gets the flag a move from a square of the player to move should have.
+     */
+    private int getFlag(int square, Position to) {
+        if (promotes(square, to))
+            return Move.PROMOTION;
+        final boolean white = turn.isWhite();
+        if (Bitboards.isSet(getBitboard(PieceType.KING, white), square) && Math.abs(to.getX() - square % 8) == 2)
+            return Move.CASTLE;
+        if (Bitboards.isSet(getBitboard(PieceType.PAWN, white), square) && to.equals(enPassantTarget)
+                && to.getX() != square % 8)
+            return Move.EN_PASSANT;
+        return Move.NORMAL;
+    }
+
+    /**
+     * Checks if a move from a square is a pawn reaching the last rank.
+     */
+    private boolean promotes(int square, Position to) {
+        return Bitboards.isSet(getBitboard(PieceType.PAWN, turn.isWhite()), square)
+                && (to.getY() == 0 || to.getY() == 7);
+    }
+
+    /**
+     * Takes back the last move made on the board, either by
+     * {@link #makeMove(Position, Position, PieceType)} or {@link #move(Piece,
+     * Position)}. The pieces, the castling rights, the en passant target, the move
+     * counters, the move history and the turn are restored to what they were before
+     * the move.
+     * 
+     * @throws IllegalStateException if there is no move to take back.
+     */
+    public void unmakeMove() {
+        if (undoStack.isEmpty())
+            throw new IllegalStateException("There is no move to unmake.");
+
+        final long state = undoStack.getState();
+        final byte piece = UndoStack.getMoved(state);
+        final byte captured = UndoStack.getCaptured(state);
+        final int from = UndoStack.getFrom(state);
+        final int to = UndoStack.getTo(state);
+
+        toggleTurn();
+        moves.removeLast();
+
+        if (PieceCode.is(piece, PieceType.KING) && Math.abs(to % 8 - from % 8) == 2)
+            moveCastlingRook(from / 8, to % 8 < from % 8, true);
+
+        // The piece on the target square may be a promoted piece, not the pawn
+        setPieceCode(to, PieceCode.EMPTY);
+        setPieceCode(from, piece);
+        if (captured != PieceCode.EMPTY)
+            setPieceCode(UndoStack.getCaptureSquare(state), captured);
+
+        setCastlingBits(UndoStack.getCastling(state));
+        final int enPassant = UndoStack.getEnPassant(state);
+        enPassantTarget = (enPassant == UndoStack.NO_SQUARE ? null : Bitboards.toPosition(enPassant));
+        halfMoves = UndoStack.getHalfMoves(state);
+        fullMoves = undoStack.getFullMoves();
+        if (!UndoStack.getGameFinished(state)) {
+            gameFinished = false;
+            gameMessage = "";
+        }
+        undoStack.pop();
+    }
+
+    /**
+     * Gets the number of moves that can be taken back with {@link #unmakeMove()}.
+     * 
+     * @return The number of moves.
+     */
+    public int getUndoableMoves() {
+        return undoStack.size();
     }
 
     /**
@@ -143,13 +654,10 @@ public class ChessBoard implements Iterable<Piece> {
      * @return {@code true} if the player is in check, {@code false} otherwise.
      */
     public boolean inCheck(Player player) {
-        for (final Piece piece : this) {
-            if (piece.getOwner() == player && piece instanceof King) {
-                final King king = (King) piece;
-                return king.inCheck();
-            }
-        }
-        return false;
+        final int kingSquare = getKingSquare(player.isWhite());
+        if (kingSquare == -1)
+            return false;
+        return isAttacked(kingSquare, !player.isWhite());
     }
 
     /**
@@ -165,16 +673,17 @@ public class ChessBoard implements Iterable<Piece> {
                 final int moveNr = (i / 2 + 1);
                 final String moveNrString = String.format("%2s", moveNr);
                 movesString += moveNrString + ". ";
-                movesString += moves.get(i);
+                movesString += Move.toString(moves.get(i));
             } else {
-                movesString += "  | " + moves.get(i) + "\n";
+                movesString += "  | " + Move.toString(moves.get(i)) + "\n";
             }
         }
         return movesString;
     }
 
     /**
-     * Gets an iterator for the chess board.
+     * Gets an iterator for the chess board. The iterator creates a new view for
+     * every piece, so code that runs often should walk the bitboards instead.
      * 
      * @return An iterator for the chess board.
      */
@@ -184,12 +693,184 @@ public class ChessBoard implements Iterable<Piece> {
     }
 
     /**
-     * Gets the piece which moved last.
+     * Gets the piece which moved last. It is read from the move history, so it is
+     * null if no move is made since the position was set up.
      * 
-     * @return The piece which moved last.
+     * @return The piece which moved last, or null if there is none.
      */
     public Piece getLastPieceMoved() {
-        return lastMovedPiece;
+        final int move = (moves.isEmpty() ? Move.NONE : moves.get(moves.size() - 1));
+        if (move == Move.NONE)
+            return null;
+        return getPosition(Move.getTo(move));
+    }
+
+    /**
+     * Gets the number of times the piece on a square has moved. The moves of the
+     * piece are followed back through the move history, so moves from before the
+     * position was set up are not counted, and a promoted piece counts from its
+     * promotion.
+     * 
+     * @param square The square index of the piece.
+     * @return The number of moves, or 0 if the square is empty.
+     */
+    public int getMoveCount(int square) {
+        int count = 0;
+        for (int i = moves.size() - 1; i >= 0; i--) {
+            final int move = moves.get(i);
+            if (move == Move.NONE)
+                continue;
+            final int to = Move.getTo(move);
+            if (to == square) {
+                if (Move.isPromotion(move))
+                    break;
+                count++;
+                square = Move.getFrom(move);
+            } else if (Move.isCastle(move) && square == (to / 8) * 8 + (to > Move.getFrom(move) ? 5 : 3)) {
+                // The rook of a castle move
+                count++;
+                square = (to / 8) * 8 + (to > Move.getFrom(move) ? 7 : 0);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the en passant target, the square a pawn skipped over with a two-step
+     * move in the last move.
+     * 
+     * @return The en passant target, or null if the last move was not a two-step
+     *         pawn move.
+     */
+    public Position getEnPassantTarget() {
+        return enPassantTarget;
+    }
+
+    /**
+     * Sets the en passant target.
+     * 
+     * @param target The square a pawn skipped over in the last move, or null if
+     *               there is none.
+     */
+    public void setEnPassantTarget(Position target) {
+        this.enPassantTarget = target;
+    }
+
+    /**
+     * Gets the Zobrist key of the position. Positions with the same pieces, player
+     * to move, castling rights and possible en passant capture have the same key,
+     * and other positions almost certainly have different keys. The pieces and
+     * the player to move are kept up to date as the board changes, and the
+     * castling rights of the players and the en passant file are added in when
+     * the key is asked for. The file is only included if a pawn can actually take
+     * en passant.
+     * 
+     * @return The key of the position.
+     * @see Zobrist
+     */
+    public long getZobristKey() {
+        long key = zobristKey ^ Zobrist.castling(getCastlingBits());
+        if (enPassantTarget != null) {
+            final boolean whiteToMove = turn.isWhite();
+            final long capturers = Bitboards.PAWN_ATTACKS[Bitboards.colorIndex(!whiteToMove)][Bitboards
+                    .square(enPassantTarget)];
+            if ((capturers & getBitboard(PieceType.PAWN, whiteToMove)) != 0)
+                key ^= Zobrist.enPassant(enPassantTarget.getX());
+        }
+        return key;
+    }
+
+    /**
+     * Checks if the player whos turn it is has at least one legal move. The answer
+     * is cached for the position, so asking again before the board changes is
+     * free.
+     * 
+     * @return {@code true} if there is a legal move.
+     * @see MoveGenerator#hasLegalMove(ChessBoard)
+     */
+    public boolean hasLegalMove() {
+        final long key = getZobristKey();
+        if (!hasLegalMoveCached || hasLegalMoveKey != key) {
+            hasLegalMove = MoveGenerator.hasLegalMove(this);
+            hasLegalMoveKey = key;
+            hasLegalMoveCached = true;
+        }
+        return hasLegalMove;
+    }
+
+    /**
+     * Checks if the player whos turn it is is checkmated.
+     * 
+     * @return {@code true} if the player is in check and has no legal moves.
+     */
+    public boolean isCheckmate() {
+        return inCheck(turn) && !hasLegalMove();
+    }
+
+    /**
+     * Checks if the player whos turn it is is stalemated.
+     * 
+     * @return {@code true} if the player is not in check and has no legal moves.
+     */
+    public boolean isStalemate() {
+        return !inCheck(turn) && !hasLegalMove();
+    }
+
+    /**
+     * Counts how many times the current position has been on the board before,
+     * with the same player to move. The positions are compared by their Zobrist
+     * keys, and only back to the last pawn move or capture, since no earlier
+     * position can come back after one.
+     * 
+     * @return The number of earlier occurrences of the position.
+     * @see #getZobristKey()
+     */
+    public int countRepetitions() {
+        return undoStack.countRepetitions(getZobristKey(), halfMoves);
+    }
+
+    /**
+     * Checks if the current position has been on the board three times.
+     * 
+     * @return {@code true} if the position is repeated for the third time.
+     */
+    public boolean isThreefoldRepetition() {
+        return countRepetitions() >= 2;
+    }
+
+    /**
+     * Gets the material signature of the position, the number of pieces of every
+     * type and color. It is kept up to date as pieces are placed, moved, captured
+     * and promoted.
+     * 
+     * @return The material signature.
+     * @see MaterialSignature
+     */
+    public long getMaterialSignature() {
+        return materialSignature;
+    }
+
+    /**
+     * Gets the number of pieces of a type and color on the board.
+     * 
+     * @param type  The type of the pieces.
+     * @param white Whether to count white or black pieces.
+     * @return The number of pieces.
+     */
+    public int getPieceCount(PieceType type, boolean white) {
+        if (type == PieceType.KING)
+            return Bitboards.count(getBitboard(type, white));
+        return MaterialSignature.count(materialSignature, type, white);
+    }
+
+    /**
+     * Checks if neither player has enough material left to give mate.
+     * 
+     * @return {@code true} if the material is insufficient for mate.
+     * @see MaterialSignature#isInsufficient(long)
+     */
+    public boolean hasInsufficientMaterial() {
+        return MaterialSignature.isInsufficient(materialSignature);
     }
 
     /**
@@ -206,16 +887,8 @@ public class ChessBoard implements Iterable<Piece> {
      * @param color The color to set the turn to.
      */
     public void setTurn(PieceColor color) {
-        this.turn = (color == PieceColor.WHITE ? white : black);
-    }
-
-    /**
-     * Sets the last piece moved.
-     * 
-     * @param piece The piece to set as last moved.
-     */
-    public void setLastPieceMoved(Piece piece) {
-        this.lastMovedPiece = piece;
+        if (turn != (color == PieceColor.WHITE ? white : black))
+            toggleTurn();
     }
 
     /**
@@ -247,6 +920,16 @@ public class ChessBoard implements Iterable<Piece> {
         return FENParser.generateFEN(this);
     }
 
+    /**
+     * Gets the player of a color.
+     * 
+     * @param white Whether to get the white or the black player.
+     * @return The player.
+     */
+    public Player getPlayer(boolean white) {
+        return white ? this.white : black;
+    }
+
     /**
      * Gets the player whos turn it is.
      * 
@@ -333,81 +1016,304 @@ public class ChessBoard implements Iterable<Piece> {
     }
 
     /**
-     * Gets the pawn that can be upgraded.
+     * Gets the pawn that can be upgraded. A pawn can only be on the last rank
+     * before it is upgraded.
      * 
-     * @return The pawn that can be upgraded.
+     * @return The pawn that can be upgraded, or null if there is none.
      */
     public Pawn getUpgradablePawn() {
-        return this.upgradablePawn;
+        final long pawns = (getBitboard(PieceType.PAWN, true) & 0xFF00000000000000L)
+                | (getBitboard(PieceType.PAWN, false) & 0xFFL);
+        if (pawns == 0)
+            return null;
+        return (Pawn) getPosition(Bitboards.lowestSquare(pawns));
     }
 
     /**
-     * Disables castling for the player if the king or rook has moved. If king
-     * moves, both sides are disabled. If rook moves, only the side the rook started
-     * on is disabled.
+     * Moves a piece and records how to take the move back. Handles captures, en
+     * passant, the rook of a castle move, promotions, castling rights, the en
+     * passant target, the move counters and the turn.
      * 
-     * @param piece       The piece that moved.
+     * @param from      The position of the piece to move.
+     * @param to        The position to move the piece to.
+     * @param promotion The type to promote a pawn to, or null to leave it as the
+     *                  upgradable pawn.
+     */
+    private void applyMove(Position from, Position to, PieceType promotion) {
+        final int fromSquare = Bitboards.square(from);
+        final byte piece = mailbox[fromSquare];
+        final boolean isPawn = PieceCode.is(piece, PieceType.PAWN);
+        final boolean isCastle = PieceCode.is(piece, PieceType.KING) && Math.abs(to.getX() - from.getX()) == 2;
+        // A pawn moving diagonally to an empty square can only be an en passant
+        final boolean enPassant = isPawn && from.getX() != to.getX()
+                && mailbox[Bitboards.square(to)] == PieceCode.EMPTY;
+        final Position capturePos = (enPassant ? Position.of(to.getX(), from.getY()) : to);
+        final byte captured = mailbox[Bitboards.square(capturePos)];
+
+        undoStack.push(UndoStack.pack(fromSquare, Bitboards.square(to), Bitboards.square(capturePos),
+                getCastlingBits(),
+                enPassantTarget == null ? UndoStack.NO_SQUARE : Bitboards.square(enPassantTarget), halfMoves,
+                gameFinished, piece, captured), getZobristKey(), fullMoves);
+
+        if (enPassant)
+            setPieceCode(Bitboards.square(capturePos), PieceCode.EMPTY);
+        setPieceCode(fromSquare, PieceCode.EMPTY);
+        setPieceCode(Bitboards.square(to), piece);
+
+        if (isCastle)
+            moveCastlingRook(from.getY(), to.getX() < from.getX(), false);
+
+        handleCastlingDisabling(piece, from, captured, capturePos);
+        handleEnPassantTarget(isPawn, from, to);
+        moves.add(encodeMove(from, to, enPassant, isCastle, promotion));
+        handleHalfMove(PieceCode.isWhite(piece));
+        handleFullMove(isPawn, captured != PieceCode.EMPTY);
+        toggleTurn();
+
+        if (isPawn && promotion != null && (to.getY() == 0 || to.getY() == 7))
+            setPieceCode(Bitboards.square(to), PieceCode.of(PieceCode.isWhite(piece), promotion));
+    }
+
+    /**
+     * Packs a move for the move history.
+     * 
+     * @param from      The position the piece moves from.
+     * @param to        The position the piece moves to.
+     * @param enPassant Whether the move is an en passant.
+     * @param isCastle  Whether the move is a castle move.
+     * @param promotion The type the pawn is promoted to, or null.
+     * @return The packed move.
+     */
+    private static int encodeMove(Position from, Position to, boolean enPassant, boolean isCastle,
+            PieceType promotion) {
+        final int fromSquare = Bitboards.square(from);
+        final int toSquare = Bitboards.square(to);
+        if (promotion != null)
+            return Move.promotion(fromSquare, toSquare, promotion);
+        if (enPassant)
+            return Move.of(fromSquare, toSquare, Move.EN_PASSANT);
+        if (isCastle)
+            return Move.of(fromSquare, toSquare, Move.CASTLE);
+        return Move.of(fromSquare, toSquare);
+    }
+
+    /**
+     * Moves the rook of a castle move between its corner and its square next to
+     * the king.
+     * 
+     * @param y         The rank of the castle move.
+     * @param queenSide Whether the castle move is towards the queen side.
+     * @param undo      Whether to move the rook back to its corner.
+     */
+    private void moveCastlingRook(int y, boolean queenSide, boolean undo) {
+        final Position corner = Position.of(queenSide ? 0 : 7, y);
+        final Position castled = Position.of(queenSide ? 3 : 5, y);
+        final Position rookFrom = (undo ? castled : corner);
+        final Position rookTo = (undo ? corner : castled);
+
+        final byte rook = mailbox[Bitboards.square(rookFrom)];
+        setPieceCode(Bitboards.square(rookFrom), PieceCode.EMPTY);
+        setPieceCode(Bitboards.square(rookTo), rook);
+    }
+
+    /**
+     * Disables castling for the players if a king or rook has moved, or a rook was
+     * captured. If king moves, both sides are disabled. If a rook moves from or is
+     * captured in its corner, only the side of that corner is disabled.
+     * 
+     * @param piece       The code of the piece that moved.
      * @param originalPos The position the piece moved from.
+     * @param captured    The code of the piece that was captured, or
+     *                    {@link PieceCode#EMPTY}.
+     * @param capturePos  The position of the captured piece.
      */
-    private void handleCastlingDisabling(Piece piece, Position originalPos) {
-        if (piece instanceof King) {
-            piece.getOwner().disableCastling();
-            return;
+    private void handleCastlingDisabling(byte piece, Position originalPos, byte captured, Position capturePos) {
+        if (PieceCode.is(piece, PieceType.KING)) {
+            getPlayer(PieceCode.isWhite(piece)).disableCastling();
+        } else if (PieceCode.is(piece, PieceType.ROOK)) {
+            disableCastlingFromCorner(getPlayer(PieceCode.isWhite(piece)), originalPos);
         }
-        if (!(piece instanceof Rook))
-            return;
 
-        if (piece.getMoveCount() != 0) {
+        if (PieceCode.is(captured, PieceType.ROOK)) {
+            disableCastlingFromCorner(getPlayer(PieceCode.isWhite(captured)), capturePos);
+        }
+    }
+
+    /**
+     * Disables castling towards a corner for the player, if the position is one of
+     * the corners of the player.
+     * 
+     * @param player The player to disable castling for.
+     * @param corner The position of the rook.
+     */
+    private void disableCastlingFromCorner(Player player, Position corner) {
+        if (corner.getY() != (player.isWhite() ? 0 : 7))
             return;
+
+        if (corner.getX() == 7) {
+            player.setCastling(false, false);
+        } else if (corner.getX() == 0) {
+            player.setCastling(false, true);
         }
+    }
 
-        if (originalPos.getX() == 7) {
-            piece.getOwner().setCastling(false, false);
-        } else if (originalPos.getX() == 0) {
-            piece.getOwner().setCastling(false, true);
+    /**
+     * Gets the castling rights of both players as four bits, white king side,
+     * white queen side, black king side and black queen side from the lowest bit.
+     * 
+     * @return The castling rights.
+     */
+    public int getCastlingBits() {
+        return (white.canCastleKingSide() ? 1 : 0) | (white.canCastleQueenSide() ? 2 : 0)
+                | (black.canCastleKingSide() ? 4 : 0) | (black.canCastleQueenSide() ? 8 : 0);
+    }
+
+    /**
+     * Sets the castling rights of both players from four bits.
+     * 
+     * @param bits The castling rights.
+     * @see #getCastlingBits()
+     */
+    private void setCastlingBits(int bits) {
+        white.setCastling((bits & 1) != 0, false);
+        white.setCastling((bits & 2) != 0, true);
+        black.setCastling((bits & 4) != 0, false);
+        black.setCastling((bits & 8) != 0, true);
+    }
+
+    /**
+     * Gives the turn to the other player.
+     */
+    private void toggleTurn() {
+        turn = (turn == white ? black : white);
+        zobristKey ^= Zobrist.BLACK_TO_MOVE;
+    }
+
+    /**
+     * Gets the material signature amount of a piece on a square.
+     * 
+     * @param piece  The code of the piece, or {@link PieceCode#EMPTY}.
+     * @param square The square index of the piece.
+     * @return The amount, or 0 if there is no piece.
+     */
+    private static long material(byte piece, int square) {
+        if (piece == PieceCode.EMPTY)
+            return 0;
+        return MaterialSignature.of(PieceCode.isWhite(piece), PieceCode.getType(piece), square);
+    }
+
+    /**
+     * Gets the Zobrist key of a piece on a square.
+     * 
+     * @param piece  The code of the piece, or {@link PieceCode#EMPTY}.
+     * @param square The square index of the piece.
+     * @return The key, or 0 if there is no piece.
+     */
+    private static long pieceKey(byte piece, int square) {
+        if (piece == PieceCode.EMPTY)
+            return 0;
+        return Zobrist.piece(PieceCode.isWhite(piece), PieceCode.getType(piece), square);
+    }
+
+    /**
+     * Toggles the given squares in the bitboards of the piece.
+     * 
+     * @param piece The code of the piece whose bitboards are toggled.
+     * @param bit   The squares to toggle.
+     */
+    private void toggleBitboards(byte piece, long bit) {
+        final int color = Bitboards.colorIndex(PieceCode.isWhite(piece));
+        pieceBitboards[color][PieceCode.getType(piece).ordinal()] ^= bit;
+        colorBitboards[color] ^= bit;
+        occupied ^= bit;
+    }
+
+    /**
+     * Updates the en passant target after a move. It is only set if a pawn moved
+     * two steps.
+     * 
+     * @param isPawn      Whether the piece that moved is a pawn.
+     * @param originalPos The position the piece moved from.
+     * @param to          The position the piece moved to.
+     */
+    private void handleEnPassantTarget(boolean isPawn, Position originalPos, Position to) {
+        if (isPawn && Math.abs(to.getY() - originalPos.getY()) == 2) {
+            enPassantTarget = Position.of(to.getX(), (to.getY() + originalPos.getY()) / 2);
+        } else {
+            enPassantTarget = null;
         }
     }
 
     /**
-     * If the piece is a pawn that has made an en passant, the pawn that was
-     * captured is removed from the board.
+     * Builds the map of every square attacked by a color from the bitboards.
      * 
-     * @param piece The piece that moved.
-     * @return whether an en passant was made.
+     * @param byWhite Whether to build the map for white or black.
+     * @return The bitboard of attacked squares.
+     * @see #getAttackMap(boolean)
      */
-    private boolean handleEnPassantMove(Piece piece) {
-        if (piece instanceof Pawn && ((Pawn) piece).getHasMadeEnPassant()) {
-            System.out.println("Pawn has made en passant");
-            final Position pos = new Position(piece.getX(), piece.getY() - piece.getOwner().getDir());
-            setPosition(pos, null);
-            return true;
+    private long computeAttackMap(boolean byWhite) {
+        final long blockers = occupied & ~getBitboard(PieceType.KING, !byWhite);
+        final long queens = getBitboard(PieceType.QUEEN, byWhite);
+        long attacks = Bitboards.pawnAttacks(getBitboard(PieceType.PAWN, byWhite), byWhite);
+
+        long knights = getBitboard(PieceType.KNIGHT, byWhite);
+        while (knights != 0) {
+            attacks |= Bitboards.KNIGHT_ATTACKS[Bitboards.lowestSquare(knights)];
+            knights = Bitboards.popLowest(knights);
         }
-        return false;
+
+        long diagonal = getBitboard(PieceType.BISHOP, byWhite) | queens;
+        while (diagonal != 0) {
+            attacks |= MagicBitboards.bishopAttacks(Bitboards.lowestSquare(diagonal), blockers);
+            diagonal = Bitboards.popLowest(diagonal);
+        }
+
+        long straight = getBitboard(PieceType.ROOK, byWhite) | queens;
+        while (straight != 0) {
+            attacks |= MagicBitboards.rookAttacks(Bitboards.lowestSquare(straight), blockers);
+            straight = Bitboards.popLowest(straight);
+        }
+
+        final int king = getKingSquare(byWhite);
+        if (king != -1)
+            attacks |= Bitboards.KING_ATTACKS[king];
+        return attacks;
     }
 
     /**
-     * Selects the pawn that should be upgraded.
+     * Updates the tracked square of the king of a color from its bitboard.
      * 
-     * @param piece The pawn to promote.
+     * @param white Whether to update the white or the black king.
      */
-    private void setPromotePawn(Pawn piece) {
-        this.upgradablePawn = piece;
+    private void updateKingSquare(boolean white) {
+        final long king = getBitboard(PieceType.KING, white);
+        kingSquares[Bitboards.colorIndex(white)] = (king == 0 ? -1 : Bitboards.lowestSquare(king));
     }
 
+    /**
+     * Replaces the upgradable pawn with the piece it is upgraded to. The last move
+     * in the move history becomes a promotion.
+     * 
+     * @param piece   The pawn to promote.
+     * @param upgrade The piece to promote the pawn to.
+     */
     public void promotePawn(Pawn piece, Piece upgrade) {
-        setPosition(piece.getPos(), upgrade);
+        final int square = piece.getSquare();
+        setPosition(square, upgrade);
+        final int last = (moves.isEmpty() ? Move.NONE : moves.get(moves.size() - 1));
+        if (last != Move.NONE && Move.getTo(last) == square)
+            moves.set(moves.size() - 1, Move.promotion(Move.getFrom(last), square, upgrade.getType()));
         checkGameFinished();
-        this.upgradablePawn = null;
     }
 
     /**
      * Handles the half move counter. If the piece is black, the counter is
      * incremented.
      * 
-     * @param piece The piece that moved. (Used to get the owner)
+     * @param white Whether the piece that moved is white.
      */
-    private void handleHalfMove(Piece piece) {
-        if (!piece.getOwner().isWhite()) {
+    private void handleHalfMove(boolean white) {
+        if (!white) {
             fullMoves++;
         }
     }
@@ -416,11 +1322,11 @@ public class ChessBoard implements Iterable<Piece> {
      * Handles the full move counter. If the piece is a pawn or a piece was
      * captured, the counter increments. Otherwise, it resets to 0.
      * 
-     * @param piece            The piece that moved.
+     * @param isPawn           Whether the piece that moved is a pawn.
      * @param pieceWasCaptured Whether a piece was captured.
      */
-    private void handleFullMove(Piece piece, boolean pieceWasCaptured) {
-        if (!(piece instanceof Pawn || pieceWasCaptured)) {
+    private void handleFullMove(boolean isPawn, boolean pieceWasCaptured) {
+        if (!(isPawn || pieceWasCaptured)) {
             halfMoves++;
         } else {
             halfMoves = 0;
@@ -434,12 +1340,18 @@ public class ChessBoard implements Iterable<Piece> {
         if (gameFinished)
             return;
 
-        if (inCheckmate(turn)) {
+        if (isCheckmate()) {
             gameFinished = true;
             gameMessage = turn + " got checkmated.";
-        } else if (inStalemate(turn)) {
+        } else if (isStalemate()) {
             gameFinished = true;
             gameMessage = turn + " got stalemated. Draw!";
+        } else if (isThreefoldRepetition()) {
+            gameFinished = true;
+            gameMessage = "The game resulted in draw by threefold repetition.";
+        } else if (hasInsufficientMaterial()) {
+            gameFinished = true;
+            gameMessage = "The game resulted in draw by insufficient material.";
         } else if (inDraw()) {
             gameFinished = true;
             gameMessage = "The game resultet in draw.";
@@ -459,46 +1371,20 @@ public class ChessBoard implements Iterable<Piece> {
     }
 
     /**
-     * Checks if the player is in stalemate.
+     * Adds a move to the move history without making it. Only the squares of the
+     * move are kept, and anything that is not a move (like {@code "----"} for a
+     * missing white move) is kept as {@link Move#NONE}.
      * 
-     * @param player The player to check.
-     * @return {@code true} if the player is in stalemate, {@code false} otherwise.
+     * @param string The move, written like {@code "e2e4"}.
      */
-    private boolean inStalemate(Player player) {
-        if (inCheck(player))
-            return false;
-        for (final Piece piece : this) {
-            if (piece.getOwner() == player) {
-                for (final Position pos : piece.getLegalMoves()) {
-                    if (piece.isValidMove(pos))
-                        return false;
-                }
-            }
-        }
-        return true;
-    }
-
-    /**
-     * Checks if the player is in checkmate.
-     * 
-     * @param player The player to check.
-     * @return {@code true} if the player is in checkmate, {@code false} otherwise.
-     */
-    private boolean inCheckmate(Player player) {
-        if (!inCheck(player))
-            return false;
-        for (final Piece piece : this) {
-            if (piece.getOwner() == player) {
-                for (final Position pos : piece.getLegalMoves()) {
-                    if (piece.isValidMove(pos))
-                        return false;
-                }
-            }
-        }
-        return true;
-    }
-
     public void addMove(String string) {
-        moves.add(string);
+        int move = Move.NONE;
+        try {
+            move = Move.of(Bitboards.square(new Position(string.substring(0, 2))),
+                    Bitboards.square(new Position(string.substring(2, 4))));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            // Not a move, like "----"
+        }
+        moves.add(move);
     }
 }
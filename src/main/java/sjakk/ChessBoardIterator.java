@@ -3,12 +3,12 @@ package sjakk;
 import java.util.Iterator;
 
 import sjakk.pieces.Piece;
+import sjakk.utils.Bitboards;
 
 public class ChessBoardIterator implements Iterator<Piece> {
 
     private ChessBoard board;
-    private int x = 0;
-    private int y = 0;
+    private int square = 0;
 
     public ChessBoardIterator(ChessBoard board) {
         this.board = board;
@@ -16,25 +16,20 @@ public class ChessBoardIterator implements Iterator<Piece> {
 
     @Override
     public boolean hasNext() {
-        for (int i = y; i < 8; i++) {
-            int startIndex = (i == y ? x : 0);
-            for (int j = startIndex; j < 8; j++) {
-                if (board.getPosition(new Position(j, i)) != null) {
-                    x = j;
-                    y = i;
-                    return true;
-                }
-            }
-        }
-        return false;
+        if (square > 63)
+            return false;
+        // Skip straight to the next occupied square using the occupancy bitboard
+        final long remaining = board.getOccupancy() & (-1L << square);
+        if (remaining == 0)
+            return false;
+        square = Bitboards.lowestSquare(remaining);
+        return true;
     }
 
     @Override
     public Piece next() {
-        Piece piece = board.getPosition(new Position(x, y));
-        x = (x + 1) % 8;
-        if (x == 0)
-            y++;
+        Piece piece = board.getPosition(square);
+        square++;
         return piece;
     }
 
@@ -0,0 +1,131 @@
+package sjakk;
+
+import sjakk.utils.Bitboards;
+import sjakk.utils.MagicBitboards;
+
+/**
+ * The pins and checks against the king of one color in a position. With these,
+ * a move of any piece other than the king is legal exactly when its target
+ * square is in the mask of the piece, so legality can be decided without
+ * moving anything on the board. The masks are computed once per position by
+ * {@link ChessBoard#getLegalityMasks(boolean)}.
+ * <p>
+ * En passant and king moves are not covered, since they change more than one
+ * square in the line of attack.
+ *
+ * @see ChessBoard
+ */
+public class LegalityMasks {
+    private final long checkers;
+    private final long checkMask;
+    private final long pinned;
+    // Only made when a piece is pinned, most positions have no pins
+    private long[] pinRays = null;
+
+    /**
+     * Computes the masks for the king of the given color.
+     *
+     * @param board The board to compute the masks for.
+     * @param white Whether to compute the masks for the white or the black king.
+     */
+    public LegalityMasks(ChessBoard board, boolean white) {
+        final int kingSquare = board.getKingSquare(white);
+        if (kingSquare == -1) {
+            // Without a king, nothing can be pinned or checked
+            checkers = Bitboards.EMPTY;
+            checkMask = ~Bitboards.EMPTY;
+            pinned = Bitboards.EMPTY;
+            return;
+        }
+
+        final long occupied = board.getOccupancy();
+        final long own = board.getOccupancy(white);
+
+        checkers = board.getAttackers(kingSquare, !white, occupied);
+        if (checkers == Bitboards.EMPTY) {
+            checkMask = ~Bitboards.EMPTY;
+        } else if (Bitboards.count(checkers) == 1) {
+            // Either capture the checking piece or block the line to it
+            checkMask = checkers | MagicBitboards.between(kingSquare, Bitboards.lowestSquare(checkers));
+        } else {
+            // Only the king can get out of a double check
+            checkMask = Bitboards.EMPTY;
+        }
+
+        // Enemy sliders that would attack the king if only enemy pieces were on the
+        // board. If exactly one of our pieces is in between, it is pinned.
+        final long enemyQueens = board.getBitboard(PieceType.QUEEN, !white);
+        final long enemyOccupied = board.getOccupancy(!white);
+        long snipers = (MagicBitboards.rookAttacks(kingSquare, enemyOccupied)
+                & (board.getBitboard(PieceType.ROOK, !white) | enemyQueens))
+                | (MagicBitboards.bishopAttacks(kingSquare, enemyOccupied)
+                        & (board.getBitboard(PieceType.BISHOP, !white) | enemyQueens));
+
+        long pinnedPieces = Bitboards.EMPTY;
+        while (snipers != 0) {
+            final int sniper = Bitboards.lowestSquare(snipers);
+            snipers = Bitboards.popLowest(snipers);
+
+            final long between = MagicBitboards.between(kingSquare, sniper);
+            final long blockers = between & occupied;
+            if (Bitboards.count(blockers) == 1 && (blockers & own) != 0) {
+                pinnedPieces |= blockers;
+                if (pinRays == null)
+                    pinRays = new long[64];
+                pinRays[Bitboards.lowestSquare(blockers)] = between | Bitboards.bit(sniper);
+            }
+        }
+        pinned = pinnedPieces;
+    }
+
+    /**
+     * Gets the pieces that give check to the king.
+     *
+     * @return The bitboard of the checking pieces.
+     */
+    public long getCheckers() {
+        return checkers;
+    }
+
+    /**
+     * Gets whether the king is in check.
+     *
+     * @return {@code true} if the king is in check, {@code false} otherwise.
+     */
+    public boolean inCheck() {
+        return checkers != Bitboards.EMPTY;
+    }
+
+    /**
+     * Gets the squares a piece can move to in order to get out of check. This is
+     * every square if the king is not in check.
+     *
+     * @return The bitboard of the squares that resolve the check.
+     */
+    public long getCheckMask() {
+        return checkMask;
+    }
+
+    /**
+     * Gets the pieces that are pinned to the king.
+     *
+     * @return The bitboard of the pinned pieces.
+     */
+    public long getPinned() {
+        return pinned;
+    }
+
+    /**
+     * Gets the squares a piece other than the king on the given square can move to
+     * without leaving the king in check.
+     *
+     * @param square The square index of the piece.
+     * @return The bitboard of the squares the piece can legally move to, if the
+     *         piece can reach them.
+     */
+    public long getMask(int square) {
+        if (Bitboards.isSet(pinned, square))
+            return checkMask & pinRays[square];
+        return checkMask;
+    }
+}
@@ -0,0 +1,179 @@
+package sjakk;
+
+import sjakk.utils.Bitboards;
+
+/**
+ * A utility class for moves packed into an {@code int}. Only the lowest 16 bits
+ * are used, so a move also fits in a {@code short}:
+ * <ul>
+ * <li>bits 0-5: the square the piece moves from</li>
+ * <li>bits 6-11: the square the piece moves to</li>
+ * <li>bits 12-13: the promotion piece (knight, bishop, rook or queen)</li>
+ * <li>bits 14-15: the kind of move ({@link #NORMAL}, {@link #PROMOTION},
+ * {@link #EN_PASSANT} or {@link #CASTLE})</li>
+ * </ul>
+ * Squares are indexed like in {@link Bitboards}. All methods in this class are
+ * static, and it is not possible to create an instance of Move.
+ *
+ * @see MoveList
+ * @see ChessBoard#makeMove(int)
+ */
+public abstract class Move {
+    /**
+     * No move. It is not a valid move, since it moves from a1 to a1.
+     */
+    public static final int NONE = 0;
+
+    /**
+     * The flag of a normal move or capture.
+     */
+    public static final int NORMAL = 0;
+
+    /**
+     * The flag of a pawn promotion.
+     */
+    public static final int PROMOTION = 1;
+
+    /**
+     * The flag of an en passant capture.
+     */
+    public static final int EN_PASSANT = 2;
+
+    /**
+     * The flag of a castle move, where the king moves two steps.
+     */
+    public static final int CASTLE = 3;
+
+    /**
+     * The pieces a pawn can be promoted to, in the order they are encoded.
+     */
+    private static final PieceType[] PROMOTION_TYPES = { PieceType.KNIGHT, PieceType.BISHOP, PieceType.ROOK,
+            PieceType.QUEEN };
+
+    /**
+     * Packs a normal move.
+     *
+     * @param from The square to move from.
+     * @param to   The square to move to.
+     * @return The move.
+     */
+    public static int of(int from, int to) {
+        return from | (to << 6);
+    }
+
+    /**
+     * Packs a move with a flag.
+     *
+     * @param from The square to move from.
+     * @param to   The square to move to.
+     * @param flag The kind of move, one of {@link #NORMAL}, {@link #EN_PASSANT}
+     *             or {@link #CASTLE}.
+     * @return The move.
+     */
+    public static int of(int from, int to, int flag) {
+        return from | (to << 6) | (flag << 14);
+    }
+
+    /**
+     * Packs a pawn promotion.
+     *
+     * @param from      The square to move from.
+     * @param to        The square to move to.
+     * @param promotion The piece to promote to. Must be a knight, bishop, rook or
+     *                  queen.
+     * @return The move.
+     */
+    public static int promotion(int from, int to, PieceType promotion) {
+        return from | (to << 6) | ((promotion.ordinal() - PieceType.KNIGHT.ordinal()) << 12) | (PROMOTION << 14);
+    }
+
+    /**
+     * Returns the square the move is from.
+     *
+     * @param move The move.
+     * @return The square index.
+     */
+    public static int getFrom(int move) {
+        return move & 0x3F;
+    }
+
+    /**
+     * Returns the square the move is to.
+     *
+     * @param move The move.
+     * @return The square index.
+     */
+    public static int getTo(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    /**
+     * Returns the kind of the move.
+     *
+     * @param move The move.
+     * @return One of {@link #NORMAL}, {@link #PROMOTION}, {@link #EN_PASSANT} or
+     *         {@link #CASTLE}.
+     */
+    public static int getFlag(int move) {
+        return (move >>> 14) & 0x3;
+    }
+
+    /**
+     * Returns whether the move is a pawn promotion.
+     *
+     * @param move The move.
+     * @return {@code true} if the move is a promotion.
+     */
+    public static boolean isPromotion(int move) {
+        return getFlag(move) == PROMOTION;
+    }
+
+    /**
+     * Returns whether the move is an en passant capture.
+     *
+     * @param move The move.
+     * @return {@code true} if the move is an en passant.
+     */
+    public static boolean isEnPassant(int move) {
+        return getFlag(move) == EN_PASSANT;
+    }
+
+    /**
+     * Returns whether the move is a castle move.
+     *
+     * @param move The move.
+     * @return {@code true} if the move is a castle move.
+     */
+    public static boolean isCastle(int move) {
+        return getFlag(move) == CASTLE;
+    }
+
+    /**
+     * Returns the piece a pawn is promoted to by the move.
+     *
+     * @param move The move.
+     * @return The promotion piece, or null if the move is not a promotion.
+     */
+    public static PieceType getPromotion(int move) {
+        if (!isPromotion(move))
+            return null;
+        return PROMOTION_TYPES[(move >>> 12) & 0x3];
+    }
+
+    /**
+     * Returns the move written with the from and to squares (ex. {@code "e2e4"}),
+     * followed by the piece character for promotions (ex. {@code "e7e8q"}).
+     * {@link #NONE} is written as {@code "----"}.
+     *
+     * @param move The move.
+     * @return The move as a string.
+     */
+    public static String toString(int move) {
+        if (move == NONE)
+            return "----";
+        String out = Bitboards.toPosition(getFrom(move)).toString() + Bitboards.toPosition(getTo(move)).toString();
+        if (isPromotion(move))
+            out += getPromotion(move).getSymbol();
+        return out;
+    }
+}
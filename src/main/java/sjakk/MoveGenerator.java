@@ -0,0 +1,350 @@
+package sjakk;
+
+import sjakk.utils.Bitboards;
+import sjakk.utils.MagicBitboards;
+import sjakk.utils.PieceCode;
+
+/**
+ * Generates every legal move of a side straight from the bitboards of the
+ * board, into a {@link MoveList}. This gives the same moves as
+ * {@link sjakk.pieces.Piece#getLegalMoves()} for all the pieces of the side,
+ * without creating any objects. All methods in this class are static, and it is
+ * not possible to create an instance of MoveGenerator.
+ *
+ * @see Move
+ * @see LegalityMasks
+ */
+public abstract class MoveGenerator {
+    /**
+     * The first and the last rank, where pawns promote.
+     */
+    private static final long LAST_RANKS = 0xFF000000000000FFL;
+
+    /**
+     * Fills the list with every legal move of the player whos turn it is. The list
+     * is cleared first.
+     *
+     * @param board The board to generate moves for.
+     * @param moves The list to fill.
+     */
+    public static void generateLegalMoves(ChessBoard board, MoveList moves) {
+        generate(board, moves, true, true);
+    }
+
+    /**
+     * Fills the list with the legal captures, en passant captures and promotions
+     * of the player whos turn it is. These are the moves that change the material
+     * on the board. The list is cleared first.
+     *
+     * @param board The board to generate moves for.
+     * @param moves The list to fill.
+     */
+    public static void generateLegalCaptures(ChessBoard board, MoveList moves) {
+        generate(board, moves, true, false);
+    }
+
+    /**
+     * Fills the list with the legal moves of the player whos turn it is that are
+     * not generated by {@link #generateLegalCaptures(ChessBoard, MoveList)}, that
+     * is every move that does not capture or promote. The list is cleared first.
+     *
+     * @param board The board to generate moves for.
+     * @param moves The list to fill.
+     */
+    public static void generateLegalQuietMoves(ChessBoard board, MoveList moves) {
+        generate(board, moves, false, true);
+    }
+
+    /**
+     * Fills the list with legal moves of the player whos turn it is.
+     *
+     * @param board    The board to generate moves for.
+     * @param moves    The list to fill. It is cleared first.
+     * @param captures Whether to generate captures, en passant and promotions.
+     * @param quiets   Whether to generate every other move.
+     */
+    private static void generate(ChessBoard board, MoveList moves, boolean captures, boolean quiets) {
+        moves.clear();
+        final Player player = board.getPlayerTurn();
+        final boolean white = player.isWhite();
+        final long own = board.getOccupancy(white);
+        final long enemy = board.getOccupancy(!white);
+        final long occupied = board.getOccupancy();
+        final long targets = (captures ? enemy : Bitboards.EMPTY) | (quiets ? ~occupied : Bitboards.EMPTY);
+
+        final int kingSquare = board.getKingSquare(white);
+        if (kingSquare != -1) {
+            addMoves(moves, kingSquare,
+                    Bitboards.KING_ATTACKS[kingSquare] & targets & ~board.getAttackMap(!white));
+            if (quiets)
+                addCastlingMoves(board, player, kingSquare, moves);
+        }
+
+        final LegalityMasks masks = board.getLegalityMasks(white);
+        if (masks.getCheckMask() == Bitboards.EMPTY) {
+            // Only the king can get out of a double check
+            return;
+        }
+
+        long knights = board.getBitboard(PieceType.KNIGHT, white);
+        while (knights != 0) {
+            final int from = Bitboards.lowestSquare(knights);
+            knights = Bitboards.popLowest(knights);
+            addMoves(moves, from, Bitboards.KNIGHT_ATTACKS[from] & targets & masks.getMask(from));
+        }
+
+        final long queens = board.getBitboard(PieceType.QUEEN, white);
+        long diagonal = board.getBitboard(PieceType.BISHOP, white) | queens;
+        while (diagonal != 0) {
+            final int from = Bitboards.lowestSquare(diagonal);
+            diagonal = Bitboards.popLowest(diagonal);
+            long attacks = MagicBitboards.bishopAttacks(from, occupied);
+            if (Bitboards.isSet(queens, from))
+                attacks |= MagicBitboards.rookAttacks(from, occupied);
+            addMoves(moves, from, attacks & targets & masks.getMask(from));
+        }
+
+        long straight = board.getBitboard(PieceType.ROOK, white);
+        while (straight != 0) {
+            final int from = Bitboards.lowestSquare(straight);
+            straight = Bitboards.popLowest(straight);
+            addMoves(moves, from, MagicBitboards.rookAttacks(from, occupied) & targets & masks.getMask(from));
+        }
+
+        // Pushes to the last rank are promotions, so they count as captures
+        final long pawnMask = (captures ? enemy | LAST_RANKS : Bitboards.EMPTY)
+                | (quiets ? ~occupied & ~LAST_RANKS : Bitboards.EMPTY);
+        addPawnMoves(board, white, enemy, occupied, masks, pawnMask, captures, moves);
+    }
+
+    /**
+     * Checks if the player whos turn it is has at least one legal move. The pieces
+     * are tried one at a time, starting with the king, and the check stops at the
+     * first piece that can move.
+     *
+     * @param board The board to check.
+     * @return {@code true} if there is a legal move.
+     */
+    public static boolean hasLegalMove(ChessBoard board) {
+        final boolean white = board.getPlayerTurn().isWhite();
+        final long own = board.getOccupancy(white);
+        final long enemy = board.getOccupancy(!white);
+        final long occupied = board.getOccupancy();
+
+        // Castling is not needed, since the king can then also take one step
+        final int kingSquare = board.getKingSquare(white);
+        if (kingSquare != -1
+                && (Bitboards.KING_ATTACKS[kingSquare] & ~own & ~board.getAttackMap(!white)) != 0)
+            return true;
+
+        final LegalityMasks masks = board.getLegalityMasks(white);
+        if (masks.getCheckMask() == Bitboards.EMPTY)
+            return false;
+
+        long knights = board.getBitboard(PieceType.KNIGHT, white);
+        while (knights != 0) {
+            final int from = Bitboards.lowestSquare(knights);
+            knights = Bitboards.popLowest(knights);
+            if ((Bitboards.KNIGHT_ATTACKS[from] & ~own & masks.getMask(from)) != 0)
+                return true;
+        }
+
+        final long queens = board.getBitboard(PieceType.QUEEN, white);
+        final long rooks = board.getBitboard(PieceType.ROOK, white);
+        long sliders = board.getBitboard(PieceType.BISHOP, white) | rooks | queens;
+        while (sliders != 0) {
+            final int from = Bitboards.lowestSquare(sliders);
+            sliders = Bitboards.popLowest(sliders);
+            long attacks = Bitboards.EMPTY;
+            if (!Bitboards.isSet(rooks, from))
+                attacks |= MagicBitboards.bishopAttacks(from, occupied);
+            if (Bitboards.isSet(rooks | queens, from))
+                attacks |= MagicBitboards.rookAttacks(from, occupied);
+            if ((attacks & ~own & masks.getMask(from)) != 0)
+                return true;
+        }
+
+        final int color = Bitboards.colorIndex(white);
+        final Position enPassantTarget = board.getEnPassantTarget();
+        long pawns = board.getBitboard(PieceType.PAWN, white);
+        while (pawns != 0) {
+            final int from = Bitboards.lowestSquare(pawns);
+            pawns = Bitboards.popLowest(pawns);
+            if ((pawnTargets(white, from, enemy, occupied) & masks.getMask(from)) != 0)
+                return true;
+            if (enPassantTarget != null
+                    && Bitboards.isSet(Bitboards.PAWN_ATTACKS[color][from], Bitboards.square(enPassantTarget))
+                    && enPassantIsLegal(board, white, from, Bitboards.square(enPassantTarget)))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gets every square the piece on a square can legally move to, castling and
+     * en passant included. The answer is looked up in the attack maps and
+     * {@link LegalityMasks} of the position, so nothing on the board is moved to
+     * find it. It does not matter whos turn it is.
+     *
+     * @param board  The board the piece is on.
+     * @param square The square index of the piece.
+     * @return The bitboard of the squares the piece can move to, or
+     *         {@link Bitboards#EMPTY} if the square is empty.
+     */
+    public static long getLegalTargets(ChessBoard board, int square) {
+        final byte code = board.getPieceCode(square);
+        if (code == PieceCode.EMPTY)
+            return Bitboards.EMPTY;
+        final boolean white = PieceCode.isWhite(code);
+        final long own = board.getOccupancy(white);
+        final long occupied = board.getOccupancy();
+
+        final long attacks;
+        switch (PieceCode.getType(code)) {
+            case KING: {
+                return (Bitboards.KING_ATTACKS[square] & ~own & ~board.getAttackMap(!white))
+                        | castlingTargets(board, board.getPlayer(white), square);
+            }
+            case PAWN: {
+                long targets = pawnTargets(white, square, board.getOccupancy(!white), occupied)
+                        & board.getLegalityMasks(white).getMask(square);
+                final Position enPassantTarget = board.getEnPassantTarget();
+                if (enPassantTarget != null) {
+                    final int to = Bitboards.square(enPassantTarget);
+                    if (Bitboards.isSet(Bitboards.PAWN_ATTACKS[Bitboards.colorIndex(white)][square], to)
+                            && enPassantIsLegal(board, white, square, to))
+                        targets |= Bitboards.bit(to);
+                }
+                return targets;
+            }
+            case KNIGHT:
+                attacks = Bitboards.KNIGHT_ATTACKS[square];
+                break;
+            case BISHOP:
+                attacks = MagicBitboards.bishopAttacks(square, occupied);
+                break;
+            case ROOK:
+                attacks = MagicBitboards.rookAttacks(square, occupied);
+                break;
+            default:
+                attacks = MagicBitboards.queenAttacks(square, occupied);
+        }
+        return attacks & ~own & board.getLegalityMasks(white).getMask(square);
+    }
+
+    /**
+     * Gets the squares a pawn can push to or capture on, not counting en passant
+     * and not checking that the king is safe.
+     */
+    private static long pawnTargets(boolean white, int from, long enemy, long occupied) {
+        final int forward = white ? 8 : -8;
+        long targets = Bitboards.PAWN_ATTACKS[Bitboards.colorIndex(white)][from] & enemy;
+        final long single = Bitboards.bit(from + forward) & ~occupied;
+        targets |= single;
+        if (single != 0 && from / 8 == (white ? 1 : 6))
+            targets |= Bitboards.bit(from + 2 * forward) & ~occupied;
+        return targets;
+    }
+
+    /**
+     * Adds a normal move from a square to every square in the bitboard.
+     */
+    private static void addMoves(MoveList moves, int from, long targets) {
+        while (targets != 0) {
+            moves.add(Move.of(from, Bitboards.lowestSquare(targets)));
+            targets = Bitboards.popLowest(targets);
+        }
+    }
+
+    /**
+     * Adds the castle moves of the king, with the same rules as
+     * {@link sjakk.pieces.King#getLegalMoves()}.
+     */
+    private static void addCastlingMoves(ChessBoard board, Player player, int kingSquare, MoveList moves) {
+        long targets = castlingTargets(board, player, kingSquare);
+        while (targets != 0) {
+            moves.add(Move.of(kingSquare, Bitboards.lowestSquare(targets), Move.CASTLE));
+            targets = Bitboards.popLowest(targets);
+        }
+    }
+
+    /**
+     * Gets the squares the king can castle to.
+     */
+    private static long castlingTargets(ChessBoard board, Player player, int kingSquare) {
+        final boolean white = player.isWhite();
+        final long attacked = board.getAttackMap(!white);
+        if (Bitboards.isSet(attacked, kingSquare))
+            return Bitboards.EMPTY;
+
+        final int x = kingSquare % 8;
+        final int y = kingSquare / 8;
+        final long rooks = board.getBitboard(PieceType.ROOK, white);
+        final long occupied = board.getOccupancy();
+
+        long targets = Bitboards.EMPTY;
+        if (player.canCastleQueenSide() && x >= 3 && Bitboards.isSet(rooks, Bitboards.square(0, y))) {
+            final long path = Bitboards.bit(x - 1, y) | Bitboards.bit(x - 2, y);
+            if ((attacked & path) == 0 && (occupied & (path | Bitboards.bit(x - 3, y))) == 0)
+                targets |= Bitboards.bit(kingSquare - 2);
+        }
+        if (player.canCastleKingSide() && x <= 5 && Bitboards.isSet(rooks, Bitboards.square(7, y))) {
+            final long path = Bitboards.bit(x + 1, y) | Bitboards.bit(x + 2, y);
+            if ((attacked & path) == 0 && (occupied & path) == 0)
+                targets |= Bitboards.bit(kingSquare + 2);
+        }
+        return targets;
+    }
+
+    /**
+     * Adds the pushes, captures and promotions of the pawns to the given target
+     * squares, and the en passant captures if asked for.
+     */
+    private static void addPawnMoves(ChessBoard board, boolean white, long enemy, long occupied,
+            LegalityMasks masks, long pawnMask, boolean enPassantCaptures, MoveList moves) {
+        final int color = Bitboards.colorIndex(white);
+        final Position enPassantTarget = board.getEnPassantTarget();
+        final long enPassant = (enPassantTarget == null || !enPassantCaptures ? Bitboards.EMPTY
+                : Bitboards.bit(enPassantTarget));
+
+        long pawns = board.getBitboard(PieceType.PAWN, white);
+        while (pawns != 0) {
+            final int from = Bitboards.lowestSquare(pawns);
+            pawns = Bitboards.popLowest(pawns);
+
+            long targets = pawnTargets(white, from, enemy, occupied) & pawnMask & masks.getMask(from);
+            while (targets != 0) {
+                final int to = Bitboards.lowestSquare(targets);
+                targets = Bitboards.popLowest(targets);
+                if (to / 8 == 0 || to / 8 == 7) {
+                    moves.add(Move.promotion(from, to, PieceType.QUEEN));
+                    moves.add(Move.promotion(from, to, PieceType.ROOK));
+                    moves.add(Move.promotion(from, to, PieceType.BISHOP));
+                    moves.add(Move.promotion(from, to, PieceType.KNIGHT));
+                } else {
+                    moves.add(Move.of(from, to));
+                }
+            }
+
+            if ((Bitboards.PAWN_ATTACKS[color][from] & enPassant) != 0
+                    && enPassantIsLegal(board, white, from, Bitboards.lowestSquare(enPassant)))
+                moves.add(Move.of(from, Bitboards.lowestSquare(enPassant), Move.EN_PASSANT));
+        }
+    }
+
+    /**
+     * Checks an en passant capture by looking for attacks on the king with the
+     * occupancy after the capture, since it changes three squares at once.
+     */
+    private static boolean enPassantIsLegal(ChessBoard board, boolean white, int from, int to) {
+        final long captured = Bitboards.bit(to % 8, from / 8);
+        if ((board.getBitboard(PieceType.PAWN, !white) & captured) == 0)
+            return false;
+
+        final int kingSquare = board.getKingSquare(white);
+        if (kingSquare == -1)
+            return true;
+        final long occupied = board.getOccupancy() ^ Bitboards.bit(from) ^ Bitboards.bit(to) ^ captured;
+        return (board.getAttackers(kingSquare, !white, occupied) & ~captured) == 0;
+    }
+}
@@ -0,0 +1,147 @@
+package sjakk;
+
+import java.util.Arrays;
+
+/**
+ * A reusable list of moves packed as {@code int}s. The list is meant to be
+ * cleared and filled again for every position, so generating moves does not
+ * allocate anything once the list is large enough.
+ *
+ * @see Move
+ * @see MoveGenerator
+ */
+public class MoveList {
+    /**
+     * The capacity of a new list. No legal chess position has more moves.
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private int[] moves;
+    private int size = 0;
+
+    /**
+     * Creates a new empty move list.
+     */
+    public MoveList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new empty move list with room for the given number of moves. The
+     * list grows when more moves are added.
+     *
+     * @param capacity The number of moves to make room for.
+     */
+    public MoveList(int capacity) {
+        moves = new int[capacity];
+    }
+
+    /**
+     * Creates a new list with the same moves as the given list.
+     *
+     * @param list The list to copy.
+     */
+    public MoveList(MoveList list) {
+        moves = Arrays.copyOf(list.moves, list.moves.length);
+        size = list.size;
+    }
+
+    /**
+     * Adds a move to the end of the list.
+     *
+     * @param move The move to add.
+     */
+    public void add(int move) {
+        if (size == moves.length)
+            moves = Arrays.copyOf(moves, Math.max(8, size * 2));
+        moves[size++] = move;
+    }
+
+    /**
+     * Gets the move at an index.
+     *
+     * @param index The index of the move.
+     * @return The move.
+     * @throws IndexOutOfBoundsException if the index is not in the list.
+     */
+    public int get(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        return moves[index];
+    }
+
+    /**
+     * Replaces the move at an index.
+     *
+     * @param index The index of the move.
+     * @param move  The new move.
+     * @throws IndexOutOfBoundsException if the index is not in the list.
+     */
+    public void set(int index, int move) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        moves[index] = move;
+    }
+
+    /**
+     * Removes the last move of the list.
+     *
+     * @return The removed move.
+     * @throws IllegalStateException if the list is empty.
+     */
+    public int removeLast() {
+        if (size == 0)
+            throw new IllegalStateException("The list is empty.");
+        return moves[--size];
+    }
+
+    /**
+     * Gets the number of moves in the list.
+     *
+     * @return The number of moves.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets whether the list is empty.
+     *
+     * @return {@code true} if there are no moves in the list.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gets whether the list contains a move.
+     *
+     * @param move The move to look for.
+     * @return {@code true} if the move is in the list.
+     */
+    public boolean contains(int move) {
+        for (int i = 0; i < size; i++) {
+            if (moves[i] == move)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Removes every move from the list, keeping its capacity.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder out = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0)
+                out.append(", ");
+            out.append(Move.toString(moves[i]));
+        }
+        return out.append("]").toString();
+    }
+}
@@ -0,0 +1,25 @@
+package sjakk;
+
+/**
+ * The different types of pieces. The ordinal of each type is used as the index
+ * of its bitboard in {@link ChessBoard}.
+ */
+public enum PieceType {
+    PAWN('p'), KNIGHT('n'), BISHOP('b'), ROOK('r'), QUEEN('q'), KING('k');
+
+    private char symbol;
+
+    private PieceType(char symbol) {
+        this.symbol = symbol;
+    }
+
+    /**
+     * Returns the lowercase character used for the type in FEN strings.
+     *
+     * @return the character of the type
+     */
+    public char getSymbol() {
+        return symbol;
+    }
+
+}
@@ -30,6 +30,20 @@ public class Player {
         dir = this.white ? 1 : -1;
     }
 
+    /**
+     * Creates a new player with the same color, turn and castling rights as the
+     * given player.
+     * 
+     * @param player the player to copy
+     */
+    public Player(Player player) {
+        this.white = player.white;
+        this.hasTurn = player.hasTurn;
+        this.dir = player.dir;
+        this.canCastleKingSide = player.canCastleKingSide;
+        this.canCastleQueenSide = player.canCastleQueenSide;
+    }
+
     /**
      * Toggles the turn of this player.
      */
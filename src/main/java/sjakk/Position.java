@@ -6,10 +6,49 @@ import javafx.scene.input.MouseEvent;
  * Represents a position on the chess board. A position is defined by an x and y
  * coordinate. The x coordinate is the column, and the y coordinate is the row.
  * The lower left corner is (0, 0), and the top right corner is (7, 7).
+ * <p>
+ * Positions can not be changed, so the 64 positions on the board are created
+ * once and shared. Use {@link #of(int, int)} or {@link #of(int)} to get them
+ * without allocating.
  */
 public class Position {
-    private int x;
-    private int y;
+    private static final Position[] SQUARES = new Position[64];
+
+    static {
+        for (int square = 0; square < SQUARES.length; square++) {
+            SQUARES[square] = new Position(square % 8, square / 8);
+        }
+    }
+
+    private final int x;
+    private final int y;
+
+    /**
+     * Returns the position with the given x and y coordinates. Positions on the
+     * board are shared, only positions outside the board are created.
+     * 
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the position
+     */
+    public static Position of(int x, int y) {
+        if (x < 0 || x > 7 || y < 0 || y > 7)
+            return new Position(x, y);
+        return SQUARES[y * 8 + x];
+    }
+
+    /**
+     * Returns the shared position of a square index, where a1 is 0 and h8 is 63.
+     * 
+     * @param square the square index
+     * @return the position
+     * @throws IllegalArgumentException if the square is not on the board
+     */
+    public static Position of(int square) {
+        if (square < 0 || square > 63)
+            throw new IllegalArgumentException("Not a square on the board: " + square);
+        return SQUARES[square];
+    }
 
     /**
      * Creates a new position with the given x and y coordinates.
@@ -101,7 +140,7 @@ public class Position {
      * @return the sum of this position and the given position
      */
     public Position add(Position position) {
-        return new Position(getX() + position.getX(), getY() + position.getY());
+        return of(getX() + position.getX(), getY() + position.getY());
     }
 
     /**
@@ -121,6 +160,9 @@ public class Position {
 
     @Override
     public boolean equals(Object obj) {
-        return hashCode() == obj.hashCode();
+        if (!(obj instanceof Position))
+            return false;
+        final Position other = (Position) obj;
+        return getX() == other.getX() && getY() == other.getY();
     }
 }
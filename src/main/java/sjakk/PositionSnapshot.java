@@ -0,0 +1,193 @@
+package sjakk;
+
+import java.util.Arrays;
+
+import sjakk.utils.Bitboards;
+import sjakk.utils.FENParser;
+
+/**
+ * An immutable copy of a position on a {@link ChessBoard}: the pieces, the player
+ * to move, the castling rights, the en passant target and the move counters. A
+ * snapshot never changes after it is created, so it can be handed to any number
+ * of readers in other threads, and they will never see a position in the middle
+ * of a move.
+ * <p>
+ * The pieces are stored as one array of bitboards per color. A snapshot taken
+ * from a board shares the array of a color with the previous snapshot of the
+ * board if no piece of that color has changed, so a quiet move only costs a new
+ * array for the color that moved.
+ *
+ * @see ChessBoard#getSnapshot()
+ * @see ChessBoard#applySnapshot(PositionSnapshot)
+ */
+public final class PositionSnapshot {
+    private final long[] whitePieces;
+    private final long[] blackPieces;
+    private final boolean whiteToMove;
+    private final int castling;
+    private final int enPassantSquare;
+    private final int halfMoves;
+    private final int fullMoves;
+    private final long zobristKey;
+
+    /**
+     * Creates a snapshot. The arrays are not copied, and must never be changed
+     * after this.
+     */
+    PositionSnapshot(long[] whitePieces, long[] blackPieces, boolean whiteToMove, int castling,
+            int enPassantSquare, int halfMoves, int fullMoves, long zobristKey) {
+        this.whitePieces = whitePieces;
+        this.blackPieces = blackPieces;
+        this.whiteToMove = whiteToMove;
+        this.castling = castling;
+        this.enPassantSquare = enPassantSquare;
+        this.halfMoves = halfMoves;
+        this.fullMoves = fullMoves;
+        this.zobristKey = zobristKey;
+    }
+
+    /**
+     * Returns the pieces of a color, reusing the array of this snapshot if they
+     * are the same.
+     *
+     * @param white  Whether to share the white or black array.
+     * @param pieces The bitboards of the pieces, indexed by piece type.
+     * @return An array with the pieces that is safe to put in a snapshot.
+     */
+    long[] share(boolean white, long[] pieces) {
+        final long[] own = (white ? whitePieces : blackPieces);
+        if (Arrays.equals(own, pieces))
+            return own;
+        return pieces.clone();
+    }
+
+    /**
+     * Gets the squares of the pieces of a type and color.
+     *
+     * @param type  The type of the pieces.
+     * @param white Whether to get the white or the black pieces.
+     * @return The bitboard of the pieces.
+     */
+    public long getBitboard(PieceType type, boolean white) {
+        return (white ? whitePieces : blackPieces)[type.ordinal()];
+    }
+
+    /**
+     * Gets the type of the piece on a square.
+     *
+     * @param square The square index.
+     * @return The type of the piece, or null if the square is empty.
+     */
+    public PieceType getPieceType(int square) {
+        for (final PieceType type : PieceType.values()) {
+            if (Bitboards.isSet(whitePieces[type.ordinal()] | blackPieces[type.ordinal()], square))
+                return type;
+        }
+        return null;
+    }
+
+    /**
+     * Gets whether the piece on a square is white.
+     *
+     * @param square The square index.
+     * @return {@code true} if there is a white piece on the square.
+     */
+    public boolean isWhite(int square) {
+        for (final long pieces : whitePieces) {
+            if (Bitboards.isSet(pieces, square))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gets whether white is the player to move.
+     *
+     * @return {@code true} if white is to move.
+     */
+    public boolean isWhiteToMove() {
+        return whiteToMove;
+    }
+
+    /**
+     * Gets whether a player can castle towards a side.
+     *
+     * @param white     Whether to check the white or the black player.
+     * @param queenSide Whether to check the queen side or the king side.
+     * @return {@code true} if the player can castle towards the side.
+     */
+    public boolean canCastle(boolean white, boolean queenSide) {
+        return (castling & (1 << ((white ? 0 : 2) + (queenSide ? 1 : 0)))) != 0;
+    }
+
+    /**
+     * Gets the en passant target.
+     *
+     * @return The en passant target, or null if there is none.
+     */
+    public Position getEnPassantTarget() {
+        return (enPassantSquare == -1 ? null : Bitboards.toPosition(enPassantSquare));
+    }
+
+    /**
+     * Gets half moves.
+     *
+     * @return The number of half moves.
+     */
+    public int getHalfMoves() {
+        return halfMoves;
+    }
+
+    /**
+     * Gets full moves.
+     *
+     * @return The number of full moves.
+     */
+    public int getFullMoves() {
+        return fullMoves;
+    }
+
+    /**
+     * Gets the Zobrist key of the position.
+     *
+     * @return The key of the position.
+     * @see ChessBoard#getZobristKey()
+     */
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    /**
+     * Gets the castling rights as four bits.
+     */
+    int getCastlingBits() {
+        return castling;
+    }
+
+    /**
+     * Gets the FEN representation of the position, without creating a board.
+     *
+     * @return The FEN representation of the position.
+     */
+    public String getFEN() {
+        return FENParser.generateFEN(whitePieces, blackPieces, whiteToMove, castling, enPassantSquare, halfMoves,
+                fullMoves);
+    }
+
+    /**
+     * Creates a new board with the position of the snapshot.
+     *
+     * @return The new board.
+     * @see ChessBoard#applySnapshot(PositionSnapshot)
+     */
+    public ChessBoard toBoard() {
+        final ChessBoard board = new ChessBoard();
+        board.applySnapshot(this);
+        return board;
+    }
+
+    @Override
+    public String toString() {
+        return "PositionSnapshot [" + getFEN() + "]";
+    }
+}
@@ -0,0 +1,174 @@
+package sjakk;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import sjakk.utils.Bitboards;
+
+/**
+ * A chess board that can be shared between threads. Moves are made by one
+ * writer at a time, and after every move an immutable {@link PositionSnapshot}
+ * is published together with a new version number. Readers never take a lock:
+ * they read the latest snapshot, and queries run on a board of their own that
+ * is set up from it. A reader therefore always sees a whole position, never one
+ * in the middle of a move.
+ * <p>
+ * A {@link ChessBoard} itself is not safe to use from several threads, since
+ * even reading it fills caches on the board.
+ *
+ * @see PositionSnapshot
+ */
+public class SharedChessBoard {
+    private final ChessBoard board;
+    private final ThreadLocal<Reader> readers = ThreadLocal.withInitial(Reader::new);
+    private volatile PositionSnapshot snapshot;
+    private volatile long version = 0;
+
+    /**
+     * The board of a reading thread, and the snapshot it is set up from.
+     */
+    private static class Reader {
+        private final ChessBoard board = new ChessBoard();
+        private PositionSnapshot snapshot = null;
+    }
+
+    /**
+     * Creates a shared board that takes over the given board. The given board
+     * should not be used directly after this.
+     *
+     * @param board The board to share.
+     */
+    public SharedChessBoard(ChessBoard board) {
+        this.board = board;
+        this.snapshot = board.getSnapshot();
+    }
+
+    /**
+     * Gets the latest published position. Never blocks.
+     *
+     * @return The snapshot of the position.
+     */
+    public PositionSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Gets the version of the position, which increases by one after every
+     * published change. Never blocks.
+     *
+     * @return The version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Runs a query on a board with the latest published position. The board
+     * belongs to the calling thread, so any number of threads can query at the
+     * same time, also while a move is being made. Only the position is set up on
+     * the board, not the move history. The query should not change the board.
+     *
+     * @param <T>   The type of the answer.
+     * @param query The query to run.
+     * @return The answer of the query.
+     */
+    public <T> T query(Function<ChessBoard, T> query) {
+        final Reader reader = getReader();
+        final T answer = query.apply(reader.board);
+        if (reader.board.getUndoableMoves() != 0
+                || reader.board.getZobristKey() != reader.snapshot.getZobristKey()) {
+            // The query changed the board, so it has to be set up again next time
+            reader.snapshot = null;
+        }
+        return answer;
+    }
+
+    /**
+     * Fills the list with every legal move in the latest published position.
+     * Never blocks.
+     *
+     * @param moves The list to fill.
+     * @return The snapshot of the position the moves are for.
+     */
+    public PositionSnapshot generateLegalMoves(MoveList moves) {
+        final Reader reader = getReader();
+        reader.board.generateLegalMoves(moves);
+        return reader.snapshot;
+    }
+
+    /**
+     * Moves a piece, if the move is legal, and publishes the new position. A pawn
+     * that reaches the last rank is promoted right away.
+     *
+     * @param from      The position of the piece to move.
+     * @param to        The position to move the piece to.
+     * @param promotion The type to promote a pawn to, or null for a queen.
+     * @throws IllegalArgumentException if the move is illegal.
+     */
+    public synchronized void move(Position from, Position to, PieceType promotion) {
+        if (!board.isLegal(from, to, promotion))
+            throw new IllegalArgumentException("Illegal move");
+
+        final int square = Bitboards.square(from);
+        final boolean promotes = Bitboards.isSet(board.getBitboard(PieceType.PAWN, board.getPlayerTurn().isWhite()),
+                square) && (to.getY() == 0 || to.getY() == 7);
+        final int move = (promotes ? Move.promotion(square, Bitboards.square(to),
+                promotion == null ? PieceType.QUEEN : promotion) : Move.of(square, Bitboards.square(to)));
+        board.playTrustedMove(move);
+        publish();
+    }
+
+    /**
+     * Makes a packed move without validating it, and publishes the new position.
+     *
+     * @param move The move.
+     * @see ChessBoard#makeMove(int)
+     */
+    public synchronized void makeMove(int move) {
+        board.makeMove(move);
+        publish();
+    }
+
+    /**
+     * Takes back the last move, and publishes the position before it.
+     *
+     * @see ChessBoard#unmakeMove()
+     */
+    public synchronized void unmakeMove() {
+        board.unmakeMove();
+        publish();
+    }
+
+    /**
+     * Runs an update on the board of the writer, and publishes the position after
+     * it. No other moves or updates are made at the same time.
+     *
+     * @param update The update to run.
+     */
+    public synchronized void update(Consumer<ChessBoard> update) {
+        update.accept(board);
+        publish();
+    }
+
+    /**
+     * Gets the board of the calling thread, set up with the latest published
+     * position.
+     */
+    private Reader getReader() {
+        final Reader reader = readers.get();
+        final PositionSnapshot current = snapshot;
+        if (reader.snapshot != current) {
+            reader.board.applySnapshot(current);
+            reader.snapshot = current;
+        }
+        return reader;
+    }
+
+    /**
+     * Publishes the position of the board of the writer.
+     */
+    private void publish() {
+        snapshot = board.getSnapshot();
+        version++;
+    }
+}
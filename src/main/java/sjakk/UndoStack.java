@@ -0,0 +1,182 @@
+package sjakk;
+
+import java.util.Arrays;
+
+/**
+ * The records needed to take back the moves made on a {@link ChessBoard}. Every
+ * record is one entry in a set of parallel arrays, so making a move does not
+ * allocate anything once the arrays are large enough. The squares, castling
+ * rights, en passant target, half move counter, flags and the codes of the
+ * pieces involved in a record are packed into a single {@code long}. The
+ * Zobrist key of the position before every move is kept as
+ * well, for finding repetitions.
+ *
+ * @see ChessBoard#makeMove(Position, Position, PieceType)
+ * @see ChessBoard#unmakeMove()
+ */
+class UndoStack {
+    /**
+     * The value of the en passant square when there is no en passant target.
+     */
+    static final int NO_SQUARE = 64;
+
+    private static final int SQUARE_BITS = 0x3F;
+
+    /**
+     * The number of records a new stack has room for. The arrays are doubled when
+     * they are full, so boards that are never played on stay small.
+     */
+    private static final int INITIAL_CAPACITY = 8;
+
+    private long[] states = new long[INITIAL_CAPACITY];
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private int[] fullMoves = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+    /**
+     * Creates a new empty stack.
+     */
+    UndoStack() {
+    }
+
+    /**
+     * Creates a copy of a stack for another board.
+     *
+     * @param stack The stack to copy.
+     */
+    UndoStack(UndoStack stack) {
+        size = stack.size;
+        states = stack.states.clone();
+        keys = stack.keys.clone();
+        fullMoves = stack.fullMoves.clone();
+    }
+
+    /**
+     * Packs the scalar state of a record into a {@code long}.
+     *
+     * @param from              The square the piece moved from.
+     * @param to                The square the piece moved to.
+     * @param captureSquare     The square of the captured piece, which differs from
+     *                          {@code to} for en passant.
+     * @param castling          The castling rights before the move, as four bits.
+     * @param enPassant         The en passant square before the move, or
+     *                          {@link #NO_SQUARE}.
+     * @param halfMoves         The half move counter before the move.
+     * @param gameFinished      Whether the game was finished before the move.
+     * @param moved             The code of the piece that moved.
+     * @param captured          The code of the piece that was captured, or
+     *                          {@link PieceCode#EMPTY}.
+     * @return The packed state.
+     */
+    static long pack(int from, int to, int captureSquare, int castling, int enPassant, int halfMoves,
+            boolean gameFinished, byte moved, byte captured) {
+        return from | (to << 6) | (captureSquare << 12) | (castling << 18) | ((long) enPassant << 22)
+                | (gameFinished ? 1L << 29 : 0) | ((long) moved << 30) | ((long) captured << 34)
+                | ((long) halfMoves << 40);
+    }
+
+    static int getFrom(long state) {
+        return (int) state & SQUARE_BITS;
+    }
+
+    static int getTo(long state) {
+        return (int) (state >>> 6) & SQUARE_BITS;
+    }
+
+    static int getCaptureSquare(long state) {
+        return (int) (state >>> 12) & SQUARE_BITS;
+    }
+
+    static int getCastling(long state) {
+        return (int) (state >>> 18) & 0xF;
+    }
+
+    static int getEnPassant(long state) {
+        return (int) (state >>> 22) & 0x7F;
+    }
+
+    static boolean getGameFinished(long state) {
+        return (state & (1L << 29)) != 0;
+    }
+
+    static byte getMoved(long state) {
+        return (byte) ((state >>> 30) & 0xF);
+    }
+
+    static byte getCaptured(long state) {
+        return (byte) ((state >>> 34) & 0xF);
+    }
+
+    static int getHalfMoves(long state) {
+        return (int) (state >>> 40);
+    }
+
+    /**
+     * Pushes a new record on top of the stack.
+     *
+     * @param state      The packed state, see {@link #pack}.
+     * @param key        The Zobrist key of the position before the move.
+     * @param fullMoves  The full move counter before the move.
+     */
+    void push(long state, long key, int fullMoves) {
+        if (size == states.length) {
+            final int capacity = size * 2;
+            states = Arrays.copyOf(states, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+            this.fullMoves = Arrays.copyOf(this.fullMoves, capacity);
+        }
+        states[size] = state;
+        keys[size] = key;
+        this.fullMoves[size] = fullMoves;
+        size++;
+    }
+
+    /**
+     * Removes the record on top of the stack.
+     */
+    void pop() {
+        size--;
+    }
+
+    /**
+     * Counts the earlier positions with the given key, with the same player to
+     * move. Only the given number of the latest moves are searched, since no
+     * position before an irreversible move can come back.
+     *
+     * @param key   The Zobrist key of the current position.
+     * @param plies The number of moves since the last irreversible move.
+     * @return The number of earlier positions with the key.
+     */
+    int countRepetitions(long key, int plies) {
+        final int oldest = Math.max(0, size - plies);
+        int count = 0;
+        for (int i = size - 2; i >= oldest; i -= 2) {
+            if (keys[i] == key)
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * Removes every record from the stack.
+     */
+    void clear() {
+        size = 0;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long getState() {
+        return states[size - 1];
+    }
+
+    int getFullMoves() {
+        return fullMoves[size - 1];
+    }
+}
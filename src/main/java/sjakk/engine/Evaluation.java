@@ -0,0 +1,144 @@
+package sjakk.engine;
+
+import sjakk.ChessBoard;
+import sjakk.PieceType;
+import sjakk.utils.Bitboards;
+
+/**
+ * A static evaluation of positions, for the search. The score is the material
+ * of each side, plus a bonus or penalty for the square each piece is on. Scores
+ * are in centipawns, seen from the player whos turn it is. All methods in this
+ * class are static, and it is not possible to create an instance of Evaluation.
+ *
+ * @see Search
+ */
+public abstract class Evaluation {
+    /**
+     * The score of being checkmated right now. A mate in {@code n} plies is
+     * scored {@code MATE - n}, so shorter mates are preferred.
+     */
+    public static final int MATE = 32000;
+
+    /**
+     * A score above every possible score.
+     */
+    public static final int INFINITY = MATE + 1;
+
+    /**
+     * The score of a draw.
+     */
+    public static final int DRAW = 0;
+
+    /**
+     * The value of each piece type in centipawns, indexed by the ordinal of the
+     * type. The king has no value, since it is never captured.
+     */
+    private static final int[] VALUES = { 100, 320, 330, 500, 900, 0 };
+
+    // Bonuses for each square, from the view of white, with a8 first and h1 last
+    private static final int[][] SQUARE_BONUSES = {
+            { // Pawn
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    50, 50, 50, 50, 50, 50, 50, 50,
+                    10, 10, 20, 30, 30, 20, 10, 10,
+                    5, 5, 10, 25, 25, 10, 5, 5,
+                    0, 0, 0, 20, 20, 0, 0, 0,
+                    5, -5, -10, 0, 0, -10, -5, 5,
+                    5, 10, 10, -20, -20, 10, 10, 5,
+                    0, 0, 0, 0, 0, 0, 0, 0 },
+            { // Knight
+                    -50, -40, -30, -30, -30, -30, -40, -50,
+                    -40, -20, 0, 0, 0, 0, -20, -40,
+                    -30, 0, 10, 15, 15, 10, 0, -30,
+                    -30, 5, 15, 20, 20, 15, 5, -30,
+                    -30, 0, 15, 20, 20, 15, 0, -30,
+                    -30, 5, 10, 15, 15, 10, 5, -30,
+                    -40, -20, 0, 5, 5, 0, -20, -40,
+                    -50, -40, -30, -30, -30, -30, -40, -50 },
+            { // Bishop
+                    -20, -10, -10, -10, -10, -10, -10, -20,
+                    -10, 0, 0, 0, 0, 0, 0, -10,
+                    -10, 0, 5, 10, 10, 5, 0, -10,
+                    -10, 5, 5, 10, 10, 5, 5, -10,
+                    -10, 0, 10, 10, 10, 10, 0, -10,
+                    -10, 10, 10, 10, 10, 10, 10, -10,
+                    -10, 5, 0, 0, 0, 0, 5, -10,
+                    -20, -10, -10, -10, -10, -10, -10, -20 },
+            { // Rook
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    5, 10, 10, 10, 10, 10, 10, 5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    0, 0, 0, 5, 5, 0, 0, 0 },
+            { // Queen
+                    -20, -10, -10, -5, -5, -10, -10, -20,
+                    -10, 0, 0, 0, 0, 0, 0, -10,
+                    -10, 0, 5, 5, 5, 5, 0, -10,
+                    -5, 0, 5, 5, 5, 5, 0, -5,
+                    0, 0, 5, 5, 5, 5, 0, -5,
+                    -10, 5, 5, 5, 5, 5, 0, -10,
+                    -10, 0, 5, 0, 0, 0, 0, -10,
+                    -20, -10, -10, -5, -5, -10, -10, -20 },
+            { // King
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -20, -30, -30, -40, -40, -30, -30, -20,
+                    -10, -20, -20, -20, -20, -20, -20, -10,
+                    20, 20, 0, 0, 0, 0, 20, 20,
+                    20, 30, 10, 0, 0, 10, 30, 20 },
+    };
+
+    /**
+     * Evaluates a position without searching any moves.
+     *
+     * @param board The board to evaluate.
+     * @return The score in centipawns, seen from the player whos turn it is.
+     */
+    public static int evaluate(ChessBoard board) {
+        final int score = evaluate(board, true) - evaluate(board, false);
+        return board.getPlayerTurn().isWhite() ? score : -score;
+    }
+
+    /**
+     * Gets the value of a piece type.
+     *
+     * @param type The type of the piece.
+     * @return The value in centipawns, or 0 for the king.
+     */
+    public static int getValue(PieceType type) {
+        return VALUES[type.ordinal()];
+    }
+
+    /**
+     * Checks if a score means that one of the players can be mated.
+     *
+     * @param score The score.
+     * @return {@code true} if the score is a mate score.
+     */
+    public static boolean isMate(int score) {
+        return Math.abs(score) > MATE - Search.MAX_PLY;
+    }
+
+    /**
+     * Sums the material and square bonuses of one color.
+     */
+    private static int evaluate(ChessBoard board, boolean white) {
+        int score = 0;
+        for (final PieceType type : PieceType.values()) {
+            final int[] bonuses = SQUARE_BONUSES[type.ordinal()];
+            long pieces = board.getBitboard(type, white);
+            while (pieces != 0) {
+                final int square = Bitboards.lowestSquare(pieces);
+                pieces = Bitboards.popLowest(pieces);
+                // The tables start at a8, so white squares are mirrored vertically
+                score += VALUES[type.ordinal()] + bonuses[white ? square ^ 56 : square];
+            }
+        }
+        return score;
+    }
+}
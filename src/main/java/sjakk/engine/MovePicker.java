@@ -0,0 +1,199 @@
+package sjakk.engine;
+
+import sjakk.ChessBoard;
+import sjakk.Move;
+import sjakk.MoveList;
+import sjakk.PieceType;
+import sjakk.utils.PieceCode;
+
+/**
+ * Gives the legal moves of a position one at a time, in the order the search
+ * should try them. The moves are given in stages:
+ * <ol>
+ * <li>the hash move, from the {@link TranspositionTable};</li>
+ * <li>captures and promotions, with the most valuable victim first, and the
+ * least valuable attacker first among captures of the same victim
+ * (MVV-LVA);</li>
+ * <li>the killer moves, quiet moves that caused a cutoff at the same ply in
+ * another position;</li>
+ * <li>the other quiet moves, by their score in the history table.</li>
+ * </ol>
+ * The moves of a stage are only generated when the stage is reached, so when
+ * an early move causes a cutoff, the quiet moves are never generated. A picker
+ * is reset for every position, so it does not allocate anything while
+ * searching.
+ *
+ * @see Search
+ */
+public class MovePicker {
+    private static final int HASH = 0;
+    private static final int GENERATE_CAPTURES = 1;
+    private static final int CAPTURES = 2;
+    private static final int FIRST_KILLER = 3;
+    private static final int SECOND_KILLER = 4;
+    private static final int GENERATE_QUIETS = 5;
+    private static final int QUIETS = 6;
+    private static final int DONE = 7;
+
+    private final ChessBoard board;
+    private final MoveList moves = new MoveList();
+    private final int[] scores = new int[MoveList.DEFAULT_CAPACITY];
+    private int stage = DONE;
+    private int index = 0;
+    private int hashMove = Move.NONE;
+    private int firstKiller = Move.NONE;
+    private int secondKiller = Move.NONE;
+    private int[][] history = null;
+
+    /**
+     * Creates a picker for the positions on a board. The picker follows the
+     * board, so it can be used again after moves are made on the board.
+     *
+     * @param board The board to pick moves on.
+     */
+    public MovePicker(ChessBoard board) {
+        this.board = board;
+    }
+
+    /**
+     * Starts picking the moves of the current position on the board.
+     *
+     * @param hashMove The move to try first, or {@link Move#NONE}. It is only
+     *                 given if it is legal, with the flag it has in this
+     *                 position.
+     * @param killers  The killer moves of the ply, {@link Move#NONE} where there
+     *                 is none. They are only given if they are legal and quiet,
+     *                 since a killer can come from another position.
+     * @param history  The history scores of the player to move, indexed by the
+     *                 from and to squares of a move, or null to leave the quiet
+     *                 moves unordered.
+     */
+    public void reset(int hashMove, int[] killers, int[][] history) {
+        this.hashMove = hashMove;
+        this.firstKiller = killers[0];
+        this.secondKiller = killers[1];
+        this.history = history;
+        stage = HASH;
+    }
+
+    /**
+     * Gets the next move to try.
+     *
+     * @return The next legal move, or {@link Move#NONE} when every legal move is
+     *         given.
+     */
+    @SuppressWarnings("fallthrough")
+    public int next() {
+        switch (stage) {
+            case HASH:
+                stage = GENERATE_CAPTURES;
+                if (hashMove != Move.NONE && board.isLegal(hashMove))
+                    return hashMove;
+                // Only moves that are given are skipped later
+                hashMove = Move.NONE;
+                // Fall through
+            case GENERATE_CAPTURES:
+                board.generateLegalCaptures(moves);
+                for (int i = 0; i < moves.size(); i++) {
+                    scores[i] = captureScore(moves.get(i));
+                }
+                index = 0;
+                stage = CAPTURES;
+                // Fall through
+            case CAPTURES:
+                while (index < moves.size()) {
+                    final int move = pickBest(moves, scores, index++);
+                    if (move != hashMove)
+                        return move;
+                }
+                stage = FIRST_KILLER;
+                // Fall through
+            case FIRST_KILLER:
+                stage = SECOND_KILLER;
+                if (isKiller(firstKiller))
+                    return firstKiller;
+                firstKiller = Move.NONE;
+                // Fall through
+            case SECOND_KILLER:
+                stage = GENERATE_QUIETS;
+                if (secondKiller != firstKiller && isKiller(secondKiller))
+                    return secondKiller;
+                secondKiller = Move.NONE;
+                // Fall through
+            case GENERATE_QUIETS:
+                board.generateLegalQuietMoves(moves);
+                for (int i = 0; i < moves.size(); i++) {
+                    final int move = moves.get(i);
+                    scores[i] = (history == null ? 0 : history[Move.getFrom(move)][Move.getTo(move)]);
+                }
+                index = 0;
+                stage = QUIETS;
+                // Fall through
+            case QUIETS:
+                while (index < moves.size()) {
+                    final int move = pickBest(moves, scores, index++);
+                    if (move != hashMove && move != firstKiller && move != secondKiller)
+                        return move;
+                }
+                stage = DONE;
+                // Fall through
+            default:
+                return Move.NONE;
+        }
+    }
+
+    /**
+     * Checks if a move neither captures nor promotes.
+     *
+     * @param board The board the move is made on.
+     * @param move  The move.
+     * @return {@code true} if the move is quiet.
+     */
+    public static boolean isQuiet(ChessBoard board, int move) {
+        return !Move.isPromotion(move) && !Move.isEnPassant(move)
+                && board.getPieceCode(Move.getTo(move)) == PieceCode.EMPTY;
+    }
+
+    /**
+     * Checks if a killer move can be given, that is if it is legal, quiet and not
+     * the hash move.
+     */
+    private boolean isKiller(int move) {
+        return move != Move.NONE && move != hashMove && isQuiet(board, move) && board.isLegal(move);
+    }
+
+    /**
+     * Scores a capture or promotion by MVV-LVA. The value of the victim decides,
+     * and the type of the attacker only orders captures of the same victim.
+     */
+    private int captureScore(int move) {
+        final PieceType attacker = PieceCode.getType(board.getPieceCode(Move.getFrom(move)));
+        final PieceType victim = (Move.isEnPassant(move) ? PieceType.PAWN
+                : PieceCode.getType(board.getPieceCode(Move.getTo(move))));
+        int value = (victim == null ? 0 : Evaluation.getValue(victim));
+        if (Move.isPromotion(move))
+            value += Evaluation.getValue(Move.getPromotion(move));
+        return value * PieceType.values().length - attacker.ordinal();
+    }
+
+    /**
+     * Moves the move with the highest score from the index onwards to the index,
+     * and returns it. The scores are swapped along with the moves.
+     */
+    static int pickBest(MoveList moves, int[] scores, int index) {
+        int best = index;
+        for (int i = index + 1; i < moves.size(); i++) {
+            if (scores[i] > scores[best])
+                best = i;
+        }
+        final int move = moves.get(best);
+        if (best != index) {
+            moves.set(best, moves.get(index));
+            moves.set(index, move);
+            final int score = scores[best];
+            scores[best] = scores[index];
+            scores[index] = score;
+        }
+        return move;
+    }
+}
@@ -0,0 +1,222 @@
+package sjakk.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import sjakk.ChessBoard;
+import sjakk.utils.IllegalFENException;
+
+/**
+ * A search that runs on several threads at once, with Lazy SMP. Every thread
+ * runs its own {@link Search} on its own copy of the board, and they share one
+ * {@link TranspositionTable}. The threads do not split the work between them;
+ * they help each other through the table, where every thread finds the
+ * positions the others have already searched. The helper threads skip some of
+ * the depths, each with its own pattern, so they are spread over the depths
+ * instead of searching the same tree in lockstep.
+ * <p>
+ * The main thread decides when the search is done, and its result is the result
+ * of the search.
+ *
+ * @see Search
+ */
+public class ParallelSearch {
+    /**
+     * How many depths in a row a helper thread searches and then skips, and how
+     * far into that pattern it starts. These are the twenty patterns of many Lazy
+     * SMP engines: the first two helpers search every other depth, the next four
+     * two depths of every four, and so on. With more helpers than patterns, the
+     * patterns are used again.
+     */
+    private static final int[] SKIP_SIZE = { 1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 3, 3, 4, 4, 4, 4, 4, 4, 4, 4 };
+    private static final int[] SKIP_PHASE = { 0, 1, 0, 1, 2, 3, 0, 1, 2, 3, 4, 5, 0, 1, 2, 3, 4, 5, 6, 7 };
+
+    private final Search[] searches;
+    private final TranspositionTable table;
+    private final long[] threadNodes;
+    private final int[] threadDepths;
+    private long time = 0;
+
+    /**
+     * Creates a parallel search with a table of its own.
+     *
+     * @param board   The board with the position to search. It is copied for every
+     *                thread.
+     * @param threads The number of threads, at least 1.
+     * @throws IllegalArgumentException if the number of threads is less than 1.
+     */
+    public ParallelSearch(ChessBoard board, int threads) {
+        this(board, threads, new TranspositionTable(TranspositionTable.DEFAULT_MEGABYTES));
+    }
+
+    /**
+     * Creates a parallel search that uses the given table.
+     *
+     * @param board   The board with the position to search. It is copied for every
+     *                thread.
+     * @param threads The number of threads, at least 1.
+     * @param table   The table shared by the threads.
+     * @throws IllegalArgumentException if the number of threads is less than 1.
+     */
+    public ParallelSearch(ChessBoard board, int threads, TranspositionTable table) {
+        if (threads < 1)
+            throw new IllegalArgumentException("The search needs at least one thread.");
+        this.table = table;
+        searches = new Search[threads];
+        for (int i = 0; i < threads; i++) {
+            searches[i] = new Search(board, table);
+            // The main thread searches every depth
+            if (i > 0)
+                searches[i].setSkippedDepths(SKIP_SIZE[(i - 1) % SKIP_SIZE.length],
+                        SKIP_PHASE[(i - 1) % SKIP_PHASE.length]);
+        }
+        threadNodes = new long[threads];
+        threadDepths = new int[threads];
+    }
+
+    /**
+     * Gets the number of threads.
+     *
+     * @return The number of threads.
+     */
+    public int getThreadCount() {
+        return searches.length;
+    }
+
+    /**
+     * Sets a listener that is given the result of every iteration completed by the
+     * main thread. The node counts in these results are only those of the main
+     * thread.
+     *
+     * @param listener The listener, or null for none.
+     * @see Search#setListener(Consumer)
+     */
+    public void setListener(Consumer<SearchResult> listener) {
+        searches[0].setListener(listener);
+    }
+
+    /**
+     * Searches for the best move on every thread. The helper threads are stopped
+     * when the main thread is done.
+     *
+     * @param maxDepth The maximum depth in plies. Must be at least 1.
+     * @param maxTime  The maximum time in milliseconds, or 0 for no limit.
+     * @return The result of the main thread, with the nodes of every thread.
+     * @throws IllegalArgumentException if the depth is less than 1.
+     * @see Search#search(int, long)
+     */
+    public SearchResult search(int maxDepth, long maxTime) {
+        if (maxDepth < 1)
+            throw new IllegalArgumentException("Depth must be at least 1.");
+
+        final long start = System.nanoTime();
+        table.newSearch();
+        final List<Thread> helpers = new ArrayList<Thread>();
+        for (int i = 1; i < searches.length; i++) {
+            final Search helper = searches[i];
+            helper.clearStop();
+            final Thread thread = new Thread(() -> helper.iterate(Search.MAX_PLY - 1, 0), "search-" + i);
+            thread.setDaemon(true);
+            helpers.add(thread);
+            thread.start();
+        }
+
+        searches[0].clearStop();
+        final SearchResult result = searches[0].iterate(maxDepth, maxTime);
+        for (int i = 1; i < searches.length; i++) {
+            searches[i].stop();
+        }
+        for (final Thread thread : helpers) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        time = (System.nanoTime() - start) / 1_000_000;
+        long nodes = 0;
+        for (int i = 0; i < searches.length; i++) {
+            threadNodes[i] = searches[i].getNodes();
+            threadDepths[i] = searches[i].getCompletedDepth();
+            nodes += threadNodes[i];
+        }
+        return new SearchResult(result.getPrincipalVariation(), result.getScore(), result.getDepth(), nodes, time);
+    }
+
+    /**
+     * Stops a running search on every thread as soon as possible. Can be called
+     * from any thread.
+     */
+    public void stop() {
+        for (final Search search : searches) {
+            search.stop();
+        }
+    }
+
+    /**
+     * Gets the number of nodes searched by each thread in the last search.
+     *
+     * @return The nodes of each thread, with the main thread first.
+     */
+    public long[] getThreadNodes() {
+        return threadNodes.clone();
+    }
+
+    /**
+     * Gets the depth of the last iteration each thread completed in the last
+     * search. The helper threads skip depths, so they finish at different depths.
+     *
+     * @return The depths of each thread, with the main thread first.
+     */
+    public int[] getThreadDepths() {
+        return threadDepths.clone();
+    }
+
+    /**
+     * Gets the number of nodes searched per second by each thread in the last
+     * search, to see how the search scales with the number of threads.
+     *
+     * @return The nodes per second of each thread, with the main thread first.
+     */
+    public long[] getThreadNodesPerSecond() {
+        final long[] nodesPerSecond = new long[threadNodes.length];
+        for (int i = 0; i < threadNodes.length; i++) {
+            nodesPerSecond[i] = (time == 0 ? threadNodes[i] * 1000 : threadNodes[i] * 1000 / time);
+        }
+        return nodesPerSecond;
+    }
+
+    /**
+     * Searches a position on several threads from the command line. The arguments
+     * are optionally {@code --threads <count>} (all processors by default), and the
+     * same arguments as {@link Search#main(String[])}. The depth and nodes per
+     * second of every thread are printed after the best move.
+     *
+     * @param args The command line arguments.
+     */
+    public static void main(String[] args) throws IllegalFENException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        final List<String> searchArgs = new ArrayList<String>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--threads") && i + 1 < args.length)
+                threads = Integer.parseInt(args[++i]);
+            else
+                searchArgs.add(args[i]);
+        }
+
+        final SearchArguments arguments = SearchArguments.parse(searchArgs);
+        final ParallelSearch search = new ParallelSearch(arguments.getBoard(), threads);
+        search.setListener(SearchArguments::printIteration);
+        final SearchResult result = search.search(arguments.getDepth(), arguments.getTime());
+        SearchArguments.printBestMove(result);
+
+        final long[] nodesPerSecond = search.getThreadNodesPerSecond();
+        final int[] depths = search.getThreadDepths();
+        for (int i = 0; i < nodesPerSecond.length; i++) {
+            System.out.println("thread " + i + " depth " + depths[i] + " nps " + nodesPerSecond[i]);
+        }
+        System.out.println("total nps " + result.getNodesPerSecond());
+    }
+}
@@ -0,0 +1,216 @@
+package sjakk.engine;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+
+import sjakk.ChessBoard;
+import sjakk.Move;
+import sjakk.MoveList;
+import sjakk.utils.FENParser;
+import sjakk.utils.IllegalFENException;
+
+/**
+ * Perft (performance test) walks the tree of legal moves from a position to a
+ * given depth and counts the leaf nodes. The counts can be compared against
+ * known reference values to check the correctness of the move generation, and
+ * the time it takes measures its speed. All methods in this class are static,
+ * and it is not possible to create an instance of Perft.
+ * <p>
+ * The moves are generated by {@link ChessBoard#generateLegalMoves(MoveList)} and
+ * played with {@link ChessBoard#makeMove(int)} and
+ * {@link ChessBoard#unmakeMove()}. Moves are written like in
+ * {@link Move#toString(int)}.
+ */
+public abstract class Perft {
+
+    /**
+     * Counts the leaf nodes of the move tree from the position to the given depth.
+     *
+     * @param board The position to start from. It is not modified.
+     * @param depth The depth to search to.
+     * @return The number of leaf nodes.
+     */
+    public static long perft(ChessBoard board, int depth) {
+        if (depth == 0)
+            return 1;
+        return perft(board, depth, createMoveLists(depth));
+    }
+
+    /**
+     * Counts the leaf nodes of the move tree from the position to the given depth,
+     * broken down per root move.
+     *
+     * @param board The position to start from. It is not modified.
+     * @param depth The depth to search to. Must be at least 1.
+     * @return The number of leaf nodes after every root move, in generation order.
+     */
+    public static Map<String, Long> divide(ChessBoard board, int depth) {
+        if (depth < 1)
+            throw new IllegalArgumentException("Depth must be at least 1.");
+
+        final Map<String, Long> result = new LinkedHashMap<String, Long>();
+        final MoveList[] moveLists = createMoveLists(depth);
+        final MoveList moves = moveLists[depth - 1];
+        board.generateLegalMoves(moves);
+        for (int i = 0; i < moves.size(); i++) {
+            board.makeMove(moves.get(i));
+            result.put(Move.toString(moves.get(i)), depth == 1 ? 1 : perft(board, depth - 1, moveLists));
+            board.unmakeMove();
+        }
+        return result;
+    }
+
+    /**
+     * Gets every legal move for the player whos turn it is.
+     *
+     * @param board The board to get the moves from.
+     * @return The legal moves.
+     */
+    public static List<String> legalMoves(ChessBoard board) {
+        final MoveList moves = new MoveList();
+        board.generateLegalMoves(moves);
+        final List<String> out = new ArrayList<String>();
+        for (int i = 0; i < moves.size(); i++) {
+            out.add(Move.toString(moves.get(i)));
+        }
+        return out;
+    }
+
+    /**
+     * Counts the leaf nodes, reusing one move list per remaining depth.
+     *
+     * @param board     The position to start from.
+     * @param depth     The depth to search to. Must be at least 1.
+     * @param moveLists The move lists, indexed by the remaining depth minus one.
+     * @return The number of leaf nodes.
+     */
+    private static long perft(ChessBoard board, int depth, MoveList[] moveLists) {
+        final MoveList moves = moveLists[depth - 1];
+        board.generateLegalMoves(moves);
+        if (depth == 1)
+            return moves.size();
+
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            board.makeMove(moves.get(i));
+            nodes += perft(board, depth - 1, moveLists);
+            board.unmakeMove();
+        }
+        return nodes;
+    }
+
+    /**
+     * Creates one move list for every depth.
+     */
+    private static MoveList[] createMoveLists(int depth) {
+        final MoveList[] moveLists = new MoveList[depth];
+        for (int i = 0; i < depth; i++) {
+            moveLists[i] = new MoveList();
+        }
+        return moveLists;
+    }
+
+    /**
+     * Runs perft from the command line. The arguments are the depth, optionally
+     * {@code --divide} to break the count down per root move, and optionally a FEN
+     * string (the default start position is used if none is given). With
+     * {@code --suite <file>} instead, every position in the EPD file is checked
+     * against its reference counts.
+     *
+     * @param args The command line arguments.
+     */
+    public static void main(String[] args) throws IllegalFENException, FileNotFoundException {
+        if (args.length >= 2 && args[0].equals("--suite")) {
+            final int maxDepth = args.length >= 3 ? Integer.parseInt(args[2]) : Integer.MAX_VALUE;
+            runSuite(new File(args[1]), maxDepth);
+            return;
+        }
+        if (args.length < 1) {
+            System.out.println("Usage: Perft <depth> [--divide] [FEN]");
+            System.out.println("       Perft --suite <file.epd> [max depth]");
+            return;
+        }
+
+        final int depth = Integer.parseInt(args[0]);
+        boolean divide = false;
+        final List<String> FENParts = new ArrayList<String>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--divide"))
+                divide = true;
+            else
+                FENParts.add(args[i]);
+        }
+        final String FENString = FENParts.isEmpty() ? FENParser.DEFAULT_STRING : String.join(" ", FENParts);
+        final ChessBoard board = FENParser.getBoardFromFEN(FENString);
+
+        final long start = System.nanoTime();
+        long nodes = 0;
+        if (divide) {
+            for (final Map.Entry<String, Long> entry : divide(board, depth).entrySet()) {
+                System.out.println(entry.getKey() + ": " + entry.getValue());
+                nodes += entry.getValue();
+            }
+            System.out.println();
+        } else {
+            nodes = perft(board, depth);
+        }
+        printStatistics(nodes, System.nanoTime() - start);
+    }
+
+    /**
+     * Checks every position in an EPD file against its reference counts. Each line
+     * has a FEN string followed by the counts for each depth, like
+     * {@code <FEN> ;D1 20 ;D2 400}.
+     *
+     * @param file     The EPD file.
+     * @param maxDepth The deepest depth to check.
+     */
+    private static void runSuite(File file, int maxDepth) throws IllegalFENException, FileNotFoundException {
+        final Scanner scanner = new Scanner(file);
+        long totalNodes = 0;
+        long totalTime = 0;
+        int failures = 0;
+        while (scanner.hasNextLine()) {
+            final String line = scanner.nextLine().trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+            final String[] parts = line.split(";");
+            final ChessBoard board = FENParser.getBoardFromFEN(parts[0].trim());
+            for (int i = 1; i < parts.length; i++) {
+                final String[] entry = parts[i].trim().split(" ");
+                final int depth = Integer.parseInt(entry[0].substring(1));
+                if (depth > maxDepth)
+                    break;
+                final long expected = Long.parseLong(entry[1]);
+                final long start = System.nanoTime();
+                final long nodes = perft(board, depth);
+                final long time = System.nanoTime() - start;
+                totalNodes += nodes;
+                totalTime += time;
+                if (nodes != expected)
+                    failures++;
+                System.out.println(String.format("%-4s depth %d: %d (expected %d)  %s",
+                        nodes == expected ? "OK" : "FAIL", depth, nodes, expected, parts[0].trim()));
+            }
+        }
+        scanner.close();
+        System.out.println();
+        System.out.println("Failures: " + failures);
+        printStatistics(totalNodes, totalTime);
+    }
+
+    /**
+     * Prints the number of nodes, the time and the nodes per second.
+     */
+    private static void printStatistics(long nodes, long nanoTime) {
+        final double seconds = nanoTime / 1e9;
+        System.out.println("Nodes: " + nodes);
+        System.out.println(String.format("Time: %.3f s", seconds));
+        System.out.println("Nodes per second: " + (long) (nodes / Math.max(seconds, 1e-9)));
+    }
+}
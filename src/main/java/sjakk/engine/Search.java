@@ -0,0 +1,470 @@
+package sjakk.engine;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import sjakk.ChessBoard;
+import sjakk.Move;
+import sjakk.MoveList;
+import sjakk.utils.Bitboards;
+import sjakk.utils.IllegalFENException;
+
+/**
+ * A headless search for the best move in a position. The search is an
+ * iterative deepening alpha-beta search with principal variation search (PVS):
+ * the position is searched to depth 1, 2, 3 and so on until the depth or time
+ * budget runs out, and every iteration tries the principal variation of the
+ * previous one first. Every move after the first is searched with a null window
+ * that only proves it is not better, and is searched again with the full window
+ * if it is. At the end of the depth a quiescence search plays out the captures,
+ * so a position is never evaluated in the middle of an exchange.
+ * <p>
+ * The moves of a position are tried in the order of a {@link MovePicker}: the
+ * hash move, then captures, then killer moves, and then the other quiet moves
+ * by their history score. Killer moves and history scores are quiet moves that
+ * caused cutoffs earlier in the search.
+ * <p>
+ * Positions that are already searched are looked up in a
+ * {@link TranspositionTable}, which gives a score without searching again when
+ * it was searched deep enough, and otherwise a move to try first. The table can
+ * be shared with searches in other threads.
+ * <p>
+ * The search runs on its own copy of the board, so the board it is created from
+ * is never changed. A search is not safe to use from several threads, except
+ * for {@link #stop()}.
+ *
+ * @see Evaluation
+ * @see SearchResult
+ * @see ParallelSearch
+ */
+public class Search {
+    /**
+     * The maximum number of plies the search looks ahead.
+     */
+    public static final int MAX_PLY = 128;
+
+    /**
+     * How many nodes are searched between each look at the clock.
+     */
+    private static final int CHECK_INTERVAL = 2048;
+
+    /**
+     * The highest history score. The scores of a player are halved when one of
+     * them passes it.
+     */
+    private static final int MAX_HISTORY = 1 << 20;
+
+    private final ChessBoard board;
+    private final TranspositionTable table;
+    private final MoveList[] moveLists = new MoveList[MAX_PLY];
+    private final int[][] moveScores = new int[MAX_PLY][MoveList.DEFAULT_CAPACITY];
+    private final int[] exchangeGains = new int[StaticExchange.MAX_CAPTURES];
+    private final MovePicker[] pickers = new MovePicker[MAX_PLY];
+    private final MoveList rootMoves = new MoveList();
+    private final int[][] killers = new int[MAX_PLY][2];
+    private final int[][][] history = new int[2][64][64];
+    private final int[][] pvTable = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+    private int[] previousPv = new int[0];
+    private Consumer<SearchResult> listener = null;
+    private volatile boolean stopped = false;
+    private boolean canStop = false;
+    private int skipSize = 0;
+    private int skipPhase = 0;
+    private int completedDepth = 0;
+    private long deadline = Long.MAX_VALUE;
+    private long nodes = 0;
+
+    /**
+     * Creates a search for the position on a board, with a table of its own. The
+     * board is copied, so it can be used freely while the search runs.
+     *
+     * @param board The board with the position to search.
+     */
+    public Search(ChessBoard board) {
+        this(board, new TranspositionTable(TranspositionTable.DEFAULT_MEGABYTES));
+    }
+
+    /**
+     * Creates a search for the position on a board, that uses the given table.
+     * The board is copied, so it can be used freely while the search runs.
+     *
+     * @param board The board with the position to search.
+     * @param table The table of searched positions. May be shared with other
+     *              searches.
+     */
+    public Search(ChessBoard board, TranspositionTable table) {
+        this.board = board.copy();
+        this.table = table;
+        for (int ply = 0; ply < MAX_PLY; ply++) {
+            moveLists[ply] = new MoveList();
+            pickers[ply] = new MovePicker(this.board);
+        }
+    }
+
+    /**
+     * Sets a listener that is given the result of every completed iteration, for
+     * example to print the progress of a long search.
+     *
+     * @param listener The listener, or null for none.
+     */
+    public void setListener(Consumer<SearchResult> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Searches for the best move. The search stops when the depth is reached, the
+     * time is up, or {@link #stop()} is called, and returns the result of the last
+     * completed iteration. The time limit is not checked until depth 1 is
+     * completed, so there is a best move whenever there is a legal move.
+     *
+     * @param maxDepth The maximum depth in plies. Must be at least 1.
+     * @param maxTime  The maximum time in milliseconds, or 0 for no limit.
+     * @return The result of the search.
+     * @throws IllegalArgumentException if the depth is less than 1.
+     */
+    public SearchResult search(int maxDepth, long maxTime) {
+        stopped = false;
+        table.newSearch();
+        return iterate(maxDepth, maxTime);
+    }
+
+    /**
+     * Stops a running search as soon as possible. The search returns the result
+     * of the last completed iteration. Can be called from any thread.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Gets the number of nodes searched so far by the current or last search.
+     *
+     * @return The number of nodes.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Gets the depth of the last iteration the current or last search completed.
+     *
+     * @return The depth, or 0 if no iteration is completed.
+     */
+    int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    /**
+     * Makes the search skip some of its iterations. It searches {@code size}
+     * depths in a row and then skips as many, starting {@code phase} depths into
+     * the pattern. Helper threads of a {@link ParallelSearch} get different
+     * patterns, so they do not all search the same tree at the same time.
+     *
+     * @param size  The number of depths in a row to search and to skip, or 0 to
+     *              search every depth.
+     * @param phase How far into the pattern the first depth is.
+     */
+    void setSkippedDepths(int size, int phase) {
+        skipSize = size;
+        skipPhase = phase;
+    }
+
+    /**
+     * Lets the search run again after {@link #stop()}, before it is started in
+     * another thread. A stop that comes after this is never missed.
+     */
+    void clearStop() {
+        stopped = false;
+    }
+
+    /**
+     * Runs the iterative deepening, without clearing an earlier stop.
+     *
+     * @see #search(int, long)
+     */
+    SearchResult iterate(int maxDepth, long maxTime) {
+        if (maxDepth < 1)
+            throw new IllegalArgumentException("Depth must be at least 1.");
+
+        final long start = System.nanoTime();
+        deadline = (maxTime > 0 ? start + maxTime * 1_000_000 : Long.MAX_VALUE);
+        canStop = false;
+        nodes = 0;
+        completedDepth = 0;
+        previousPv = new int[0];
+        board.generateLegalMoves(rootMoves);
+        for (final int[] plyKillers : killers) {
+            plyKillers[0] = Move.NONE;
+            plyKillers[1] = Move.NONE;
+        }
+        // Keep what is learned from earlier searches, but trust it less
+        for (final int[][] colorHistory : history) {
+            halve(colorHistory);
+        }
+
+        SearchResult result = null;
+        for (int depth = 1; depth <= Math.min(maxDepth, MAX_PLY - 1); depth++) {
+            if (skipSize > 0 && ((depth + skipPhase) / skipSize) % 2 != 0)
+                continue;
+            final int score = search(depth, -Evaluation.INFINITY, Evaluation.INFINITY, 0);
+            if (stopped)
+                break;
+
+            previousPv = new int[pvLength[0]];
+            System.arraycopy(pvTable[0], 0, previousPv, 0, pvLength[0]);
+            result = new SearchResult(previousPv, score, depth, nodes, (System.nanoTime() - start) / 1_000_000);
+            completedDepth = depth;
+            if (listener != null)
+                listener.accept(result);
+
+            // A mate is found, or there is at most one move to choose from
+            if (Evaluation.isMate(score) || rootMoves.size() <= 1)
+                break;
+            canStop = true;
+        }
+
+        if (result == null) {
+            // Stopped from outside before the first iteration was done
+            final int[] pv = (rootMoves.isEmpty() ? new int[0] : new int[] { rootMoves.get(0) });
+            result = new SearchResult(pv, Evaluation.DRAW, 0, nodes, (System.nanoTime() - start) / 1_000_000);
+        }
+        return result;
+    }
+
+    /**
+     * Searches the position on the board with alpha-beta and PVS.
+     *
+     * @param depth The remaining depth in plies.
+     * @param alpha The score the player to move is already sure of.
+     * @param beta  The score the other player is already sure of.
+     * @param ply   The number of plies from the root.
+     * @return The score of the position, seen from the player to move.
+     */
+    private int search(int depth, int alpha, int beta, int ply) {
+        pvLength[ply] = 0;
+        if ((++nodes % CHECK_INTERVAL) == 0 && canStop && System.nanoTime() >= deadline)
+            stopped = true;
+        if (stopped)
+            return 0;
+
+        if (ply > 0 && (board.getHalfMoves() >= 100 || board.countRepetitions() > 0
+                || board.hasInsufficientMaterial()))
+            return Evaluation.DRAW;
+
+        final boolean inCheck = board.inCheck(board.getPlayerTurn());
+        // Look one ply further when in check, so mates are not pushed past the end
+        if (inCheck)
+            depth++;
+        if (depth <= 0 || ply >= MAX_PLY - 1)
+            return quiescence(alpha, beta, ply);
+
+        final long key = board.getZobristKey();
+        final long entry = table.probe(key);
+        int hashMove = Move.NONE;
+        if (entry != TranspositionTable.MISS) {
+            hashMove = TranspositionTable.getMove(entry);
+            // Only null window searches are cut, so the principal variation stays whole
+            if (ply > 0 && beta - alpha == 1 && TranspositionTable.getDepth(entry) >= depth) {
+                final int score = fromTable(TranspositionTable.getScore(entry), ply);
+                final int bound = TranspositionTable.getBound(entry);
+                if (bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha))
+                    return score;
+            }
+        }
+
+        final int pvMove = (ply < previousPv.length ? previousPv[ply] : Move.NONE);
+        final int color = Bitboards.colorIndex(board.getPlayerTurn().isWhite());
+        final MovePicker picker = pickers[ply];
+        picker.reset(hashMove != Move.NONE ? hashMove : pvMove, killers[ply], history[color]);
+
+        final int originalAlpha = alpha;
+        int best = -Evaluation.INFINITY;
+        int bestMove = Move.NONE;
+        int searched = 0;
+        int move;
+        while ((move = picker.next()) != Move.NONE) {
+            final boolean quiet = MovePicker.isQuiet(board, move);
+            board.makeMove(move);
+            int score;
+            if (searched++ == 0) {
+                score = -search(depth - 1, -beta, -alpha, ply + 1);
+            } else {
+                score = -search(depth - 1, -alpha - 1, -alpha, ply + 1);
+                if (score > alpha && score < beta)
+                    score = -search(depth - 1, -beta, -alpha, ply + 1);
+            }
+            board.unmakeMove();
+            if (stopped)
+                return 0;
+
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (alpha >= beta) {
+                        if (quiet)
+                            addCutoff(color, move, depth, ply);
+                        break;
+                    }
+                }
+            }
+        }
+        if (searched == 0)
+            return inCheck ? -Evaluation.MATE + ply : Evaluation.DRAW;
+
+        final int bound = (best >= beta ? TranspositionTable.LOWER
+                : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER);
+        table.store(key, bestMove, toTable(best, ply), depth, bound);
+        return best;
+    }
+
+    /**
+     * Searches only the captures and promotions in a position, until it is quiet.
+     * The player to move can also stand pat and take the evaluation of the
+     * position instead, unless in check, where every move is searched. Captures
+     * are tried in order of their {@link StaticExchange static exchange}, and
+     * captures that lose material are not searched at all.
+     *
+     * @param alpha The score the player to move is already sure of.
+     * @param beta  The score the other player is already sure of.
+     * @param ply   The number of plies from the root.
+     * @return The score of the position, seen from the player to move.
+     */
+    private int quiescence(int alpha, int beta, int ply) {
+        pvLength[ply] = 0;
+        if ((++nodes % CHECK_INTERVAL) == 0 && canStop && System.nanoTime() >= deadline)
+            stopped = true;
+        if (stopped)
+            return 0;
+        if (ply >= MAX_PLY - 1)
+            return Evaluation.evaluate(board);
+
+        final boolean inCheck = board.inCheck(board.getPlayerTurn());
+        final MoveList moves = moveLists[ply];
+        final int[] scores = moveScores[ply];
+        int best = -Evaluation.INFINITY;
+        if (inCheck) {
+            board.generateLegalMoves(moves);
+            if (moves.isEmpty())
+                return -Evaluation.MATE + ply;
+            for (int i = 0; i < moves.size(); i++) {
+                scores[i] = 0;
+            }
+        } else {
+            best = Evaluation.evaluate(board);
+            if (best >= beta)
+                return best;
+            alpha = Math.max(alpha, best);
+
+            board.generateLegalCaptures(moves);
+            for (int i = 0; i < moves.size();) {
+                final int score = StaticExchange.evaluate(board, moves.get(i), exchangeGains);
+                if (score < 0) {
+                    // Remove the losing capture by putting the last move in its place
+                    final int last = moves.removeLast();
+                    if (i < moves.size())
+                        moves.set(i, last);
+                } else {
+                    scores[i++] = score;
+                }
+            }
+        }
+
+        for (int i = 0; i < moves.size(); i++) {
+            final int move = MovePicker.pickBest(moves, scores, i);
+            board.makeMove(move);
+            final int score = -quiescence(-beta, -alpha, ply + 1);
+            board.unmakeMove();
+            if (stopped)
+                return 0;
+
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta)
+                        break;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Remembers a quiet move that caused a cutoff, as a killer move of the ply and
+     * in the history table. Deeper cutoffs count more in the history.
+     */
+    private void addCutoff(int color, int move, int depth, int ply) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+
+        final int[][] colorHistory = history[color];
+        colorHistory[Move.getFrom(move)][Move.getTo(move)] += depth * depth;
+        if (colorHistory[Move.getFrom(move)][Move.getTo(move)] > MAX_HISTORY)
+            halve(colorHistory);
+    }
+
+    /**
+     * Halves the history scores of a player.
+     */
+    private static void halve(int[][] colorHistory) {
+        for (final int[] fromHistory : colorHistory) {
+            for (int to = 0; to < 64; to++) {
+                fromHistory[to] /= 2;
+            }
+        }
+    }
+
+    /**
+     * Converts a score to be stored in the table. Mate scores are counted from the
+     * root, but the table counts them from the position, since the same position
+     * can be reached at different plies.
+     */
+    private static int toTable(int score, int ply) {
+        if (Evaluation.isMate(score))
+            return score > 0 ? score + ply : score - ply;
+        return score;
+    }
+
+    /**
+     * Converts a score from the table back to be counted from the root.
+     *
+     * @see #toTable(int, int)
+     */
+    private static int fromTable(int score, int ply) {
+        if (Evaluation.isMate(score))
+            return score > 0 ? score - ply : score + ply;
+        return score;
+    }
+
+    /**
+     * Sets the principal variation of a ply to a move followed by the principal
+     * variation of the next ply.
+     */
+    private void updatePv(int ply, int move) {
+        pvTable[ply][0] = move;
+        System.arraycopy(pvTable[ply + 1], 0, pvTable[ply], 1, pvLength[ply + 1]);
+        pvLength[ply] = pvLength[ply + 1] + 1;
+    }
+
+    /**
+     * Searches a position from the command line. The arguments are optionally
+     * {@code --depth <plies>}, optionally {@code --time <milliseconds>}, and
+     * optionally a FEN string (the default start position is used if none is
+     * given). Every completed iteration is printed, followed by the best move.
+     *
+     * @param args The command line arguments.
+     */
+    public static void main(String[] args) throws IllegalFENException {
+        final SearchArguments arguments = SearchArguments.parse(Arrays.asList(args));
+        final Search search = new Search(arguments.getBoard());
+        search.setListener(SearchArguments::printIteration);
+        SearchArguments.printBestMove(search.search(arguments.getDepth(), arguments.getTime()));
+    }
+}
@@ -0,0 +1,83 @@
+package sjakk.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import sjakk.ChessBoard;
+import sjakk.Move;
+import sjakk.utils.FENParser;
+import sjakk.utils.IllegalFENException;
+
+/**
+ * The command line arguments shared by {@link Search#main(String[])} and
+ * {@link ParallelSearch#main(String[])}: optionally {@code --depth <plies>},
+ * optionally {@code --time <milliseconds>}, and optionally a FEN string. The
+ * search is 6 plies deep if neither a depth nor a time is given.
+ */
+final class SearchArguments {
+    private static final int DEFAULT_DEPTH = 6;
+
+    private final ChessBoard board;
+    private final int depth;
+    private final long time;
+
+    private SearchArguments(ChessBoard board, int depth, long time) {
+        this.board = board;
+        this.depth = depth;
+        this.time = time;
+    }
+
+    /**
+     * Parses the arguments. Any argument that is not an option is part of the FEN
+     * string, so options that only one of the searches knows should be taken out
+     * first.
+     *
+     * @param args The command line arguments.
+     * @return The parsed arguments.
+     * @throws IllegalFENException if the FEN string is not valid.
+     */
+    static SearchArguments parse(List<String> args) throws IllegalFENException {
+        int depth = Search.MAX_PLY;
+        long time = 0;
+        final List<String> FENParts = new ArrayList<String>();
+        for (int i = 0; i < args.size(); i++) {
+            if (args.get(i).equals("--depth") && i + 1 < args.size())
+                depth = Integer.parseInt(args.get(++i));
+            else if (args.get(i).equals("--time") && i + 1 < args.size())
+                time = Long.parseLong(args.get(++i));
+            else
+                FENParts.add(args.get(i));
+        }
+        if (depth == Search.MAX_PLY && time == 0)
+            depth = DEFAULT_DEPTH;
+
+        final String FENString = FENParts.isEmpty() ? FENParser.DEFAULT_STRING : String.join(" ", FENParts);
+        return new SearchArguments(FENParser.getBoardFromFEN(FENString), depth, time);
+    }
+
+    ChessBoard getBoard() {
+        return board;
+    }
+
+    int getDepth() {
+        return depth;
+    }
+
+    long getTime() {
+        return time;
+    }
+
+    /**
+     * Prints a completed iteration. Used as the listener of the search.
+     */
+    static void printIteration(SearchResult result) {
+        System.out.println("info " + result);
+    }
+
+    /**
+     * Prints the best move of a finished search.
+     */
+    static void printBestMove(SearchResult result) {
+        System.out.println("bestmove " + Move.toString(result.getBestMove()));
+    }
+}
@@ -0,0 +1,123 @@
+package sjakk.engine;
+
+import sjakk.Move;
+
+/**
+ * The result of a search, or of one completed iteration of it: the best move,
+ * its score, and the principal variation, which is the line both players are
+ * expected to play. A result never changes after it is created.
+ *
+ * @see Search
+ */
+public final class SearchResult {
+    private final int[] principalVariation;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long time;
+
+    /**
+     * Creates a result.
+     *
+     * @param principalVariation The moves of the principal variation. The array is
+     *                           copied.
+     * @param score              The score of the best move, seen from the player
+     *                           to move.
+     * @param depth              The depth that was completed.
+     * @param nodes              The number of nodes searched.
+     * @param time               The time spent, in milliseconds.
+     */
+    public SearchResult(int[] principalVariation, int score, int depth, long nodes, long time) {
+        this.principalVariation = principalVariation.clone();
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.time = time;
+    }
+
+    /**
+     * Gets the best move.
+     *
+     * @return The best move, or {@link Move#NONE} if there are no legal moves.
+     */
+    public int getBestMove() {
+        return principalVariation.length == 0 ? Move.NONE : principalVariation[0];
+    }
+
+    /**
+     * Gets the principal variation, starting with the best move.
+     *
+     * @return A copy of the moves of the principal variation.
+     */
+    public int[] getPrincipalVariation() {
+        return principalVariation.clone();
+    }
+
+    /**
+     * Gets the score of the best move in centipawns, seen from the player to
+     * move.
+     *
+     * @return The score.
+     * @see Evaluation#isMate(int)
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Gets the depth that was completed, in plies.
+     *
+     * @return The depth.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Gets the number of nodes searched.
+     *
+     * @return The number of nodes.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Gets the time spent on the search.
+     *
+     * @return The time in milliseconds.
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Gets the number of nodes searched per second.
+     *
+     * @return The nodes per second.
+     */
+    public long getNodesPerSecond() {
+        return time == 0 ? nodes * 1000 : nodes * 1000 / time;
+    }
+
+    /**
+     * Returns the result written like an info line of a chess engine, for example
+     * {@code "depth 5 score cp 35 nodes 12345 time 67 pv e2e4 e7e5"}. Mates are
+     * written in moves, as {@code "score mate 2"} or {@code "score mate -2"}.
+     */
+    @Override
+    public String toString() {
+        final StringBuilder out = new StringBuilder("depth " + depth + " score ");
+        if (Evaluation.isMate(score)) {
+            final int plies = Evaluation.MATE - Math.abs(score);
+            out.append("mate " + (score > 0 ? (plies + 1) / 2 : -(plies + 1) / 2));
+        } else {
+            out.append("cp " + score);
+        }
+        out.append(" nodes " + nodes + " time " + time + " pv");
+        for (final int move : principalVariation) {
+            out.append(" " + Move.toString(move));
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,107 @@
+package sjakk.engine;
+
+import sjakk.ChessBoard;
+import sjakk.Move;
+import sjakk.PieceType;
+import sjakk.utils.Bitboards;
+import sjakk.utils.PieceCode;
+
+/**
+ * Static exchange evaluation (SEE): the material result of a capture and every
+ * recapture on the same square, without searching. Both players capture with
+ * their least valuable piece first, and either player can stop capturing when
+ * going on would lose material. Sliding pieces behind a piece that captures
+ * join in, since the attackers are found again with the captured pieces
+ * removed. All methods in this class are static, and it is not possible to
+ * create an instance of StaticExchange.
+ *
+ * @see Search
+ */
+public abstract class StaticExchange {
+    /**
+     * The most captures there can be on one square: every piece but the kings.
+     * This is the length a scratch array for {@link #evaluate} needs.
+     */
+    public static final int MAX_CAPTURES = 32;
+
+    /**
+     * The piece types in the order they are used for capturing.
+     */
+    private static final PieceType[] LEAST_VALUABLE_FIRST = PieceType.values();
+
+    /**
+     * Evaluates the exchange started by a move. The gains of the captures are
+     * kept in an array from the caller, so the evaluation does not allocate
+     * anything.
+     *
+     * @param board The board the move is made on. It is not changed.
+     * @param move  A legal move.
+     * @param gain  A scratch array of at least {@link #MAX_CAPTURES} elements.
+     *              Its contents are overwritten.
+     * @return The material won by the player making the move, in centipawns, when
+     *         both players capture as well as they can. It is 0 for a quiet move
+     *         that can not be captured, and negative if the move loses material.
+     */
+    public static int evaluate(ChessBoard board, int move, int[] gain) {
+        final int from = Move.getFrom(move);
+        final int to = Move.getTo(move);
+        boolean white = PieceCode.isWhite(board.getPieceCode(from));
+        PieceType attacker = PieceCode.getType(board.getPieceCode(from));
+
+        long occupied = board.getOccupancy() ^ Bitboards.bit(from);
+        if (Move.isEnPassant(move)) {
+            gain[0] = Evaluation.getValue(PieceType.PAWN);
+            occupied ^= Bitboards.bit(to % 8 + (from / 8) * 8);
+        } else {
+            final PieceType captured = PieceCode.getType(board.getPieceCode(to));
+            gain[0] = (captured == null ? 0 : Evaluation.getValue(captured));
+        }
+        if (Move.isPromotion(move)) {
+            attacker = Move.getPromotion(move);
+            gain[0] += Evaluation.getValue(attacker) - Evaluation.getValue(PieceType.PAWN);
+        }
+
+        int depth = 0;
+        while (depth + 1 < MAX_CAPTURES) {
+            white = !white;
+            final long attackers = board.getAttackers(to, white, occupied) & occupied;
+            final int square = leastValuable(board, attackers, white);
+            if (square == -1)
+                break;
+            final PieceType next = PieceCode.getType(board.getPieceCode(square));
+            // The king can only capture if the square is no longer defended
+            if (next == PieceType.KING
+                    && (board.getAttackers(to, !white, occupied ^ Bitboards.bit(square)) & occupied) != 0)
+                break;
+
+            depth++;
+            // The piece that captured last is the one taken now
+            gain[depth] = Evaluation.getValue(attacker) - gain[depth - 1];
+            if (Math.max(-gain[depth - 1], gain[depth]) < 0)
+                break;
+            occupied ^= Bitboards.bit(square);
+            attacker = next;
+        }
+
+        // Each player either makes the capture or stops before it
+        while (depth > 0) {
+            gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+            depth--;
+        }
+        return gain[0];
+    }
+
+    /**
+     * Finds the least valuable attacker of a color.
+     *
+     * @return The square of the attacker, or -1 if there is none.
+     */
+    private static int leastValuable(ChessBoard board, long attackers, boolean white) {
+        for (final PieceType type : LEAST_VALUABLE_FIRST) {
+            final long pieces = attackers & board.getBitboard(type, white);
+            if (pieces != 0)
+                return Bitboards.lowestSquare(pieces);
+        }
+        return -1;
+    }
+}
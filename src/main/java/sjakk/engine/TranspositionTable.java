@@ -0,0 +1,247 @@
+package sjakk.engine;
+
+import java.util.Arrays;
+
+import sjakk.Move;
+
+/**
+ * A table of positions that have already been searched, shared by every thread
+ * of a search. An entry holds the best move found in a position, its score,
+ * the depth it was searched to, and whether the score is exact or only a bound.
+ * Positions are looked up by their Zobrist key.
+ * <p>
+ * The table is one preallocated {@code long[]} of a given size in megabytes, so
+ * a search never creates any objects for it. Every entry takes two
+ * {@code long}s: the key XOR the data, and the data. Threads read and write
+ * entries without any locks. If two threads write the same entry at the same
+ * time, the key and the data of the entry no longer match, and it is read as a
+ * miss instead of giving another position's data.
+ * <p>
+ * Entries are kept in buckets of four. A new position replaces the entry in its
+ * bucket that is the least useful: an entry from an earlier search before one
+ * from this search, and a shallow entry before a deep one.
+ *
+ * @see sjakk.ChessBoard#getZobristKey()
+ * @see Search
+ */
+public class TranspositionTable {
+    /**
+     * The size of a table in megabytes when no size is given.
+     */
+    public static final int DEFAULT_MEGABYTES = 16;
+
+    /**
+     * The entry returned for a position that is not in the table.
+     */
+    public static final long MISS = 0L;
+
+    /**
+     * The score is the exact score of the position.
+     */
+    public static final int EXACT = 0;
+
+    /**
+     * The score is a lower bound: the search failed high.
+     */
+    public static final int LOWER = 1;
+
+    /**
+     * The score is an upper bound: the search failed low.
+     */
+    public static final int UPPER = 2;
+
+    // Layout of an entry, from the lowest bit
+    private static final int SCORE_SHIFT = 16;
+    private static final int DEPTH_SHIFT = 32;
+    private static final int BOUND_SHIFT = 40;
+    private static final int AGE_SHIFT = 42;
+    private static final int AGE_MASK = 0x3F;
+    private static final long USED = 1L << 48;
+
+    private static final int LONGS_PER_ENTRY = 2;
+    private static final int BUCKET_SIZE = 4;
+    private static final int LONGS_PER_BUCKET = LONGS_PER_ENTRY * BUCKET_SIZE;
+
+    private final long[] table;
+    private final int bucketMask;
+    private volatile int age = 0;
+
+    /**
+     * Creates an empty table.
+     *
+     * @param megabytes The size of the table in megabytes. The number of entries
+     *                  is rounded down to a power of two.
+     * @throws IllegalArgumentException if the size is less than 1.
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1)
+            throw new IllegalArgumentException("The table needs at least one megabyte.");
+        final long buckets = ((long) megabytes << 20) / (LONGS_PER_BUCKET * Long.BYTES);
+        final int bucketCount = (int) Long.highestOneBit(Math.min(buckets, Integer.MAX_VALUE / LONGS_PER_BUCKET));
+        table = new long[bucketCount * LONGS_PER_BUCKET];
+        bucketMask = bucketCount - 1;
+    }
+
+    /**
+     * Looks up a position.
+     *
+     * @param key The Zobrist key of the position.
+     * @return The entry of the position, or {@link #MISS} if it is not in the
+     *         table.
+     */
+    public long probe(long key) {
+        final int bucket = getBucket(key);
+        for (int i = bucket; i < bucket + LONGS_PER_BUCKET; i += LONGS_PER_ENTRY) {
+            final long data = table[i + 1];
+            if ((table[i] ^ data) == key && data != MISS)
+                return data;
+        }
+        return MISS;
+    }
+
+    /**
+     * Stores the result of searching a position. An entry of the same position is
+     * replaced, but keeps its move if the new result has none. If that entry is
+     * from this search and deeper, and the new score is only a bound, the entry is
+     * kept and only its move is updated.
+     *
+     * @param key   The Zobrist key of the position.
+     * @param move  The best move, or {@link Move#NONE}.
+     * @param score The score, with mates counted from the position.
+     * @param depth The depth the position was searched to.
+     * @param bound Whether the score is {@link #EXACT}, a {@link #LOWER} bound or
+     *              an {@link #UPPER} bound.
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        final int bucket = getBucket(key);
+        final int currentAge = age;
+        int replace = bucket;
+        int lowestValue = Integer.MAX_VALUE;
+        for (int i = bucket; i < bucket + LONGS_PER_BUCKET; i += LONGS_PER_ENTRY) {
+            final long data = table[i + 1];
+            if ((table[i] ^ data) == key && data != MISS) {
+                if (move == Move.NONE)
+                    move = getMove(data);
+                if (getAge(data) == currentAge && getDepth(data) > depth && bound != EXACT) {
+                    final long updated = (data & ~0xFFFFL) | (move & 0xFFFFL);
+                    table[i] = key ^ updated;
+                    table[i + 1] = updated;
+                    return;
+                }
+                replace = i;
+                break;
+            }
+            // Empty entries are worth the least, then old and shallow entries
+            final int value = (data == MISS ? Integer.MIN_VALUE
+                    : getDepth(data) - 8 * ((currentAge - getAge(data)) & AGE_MASK));
+            if (value < lowestValue) {
+                lowestValue = value;
+                replace = i;
+            }
+        }
+
+        final long data = (move & 0xFFFFL) | ((score & 0xFFFFL) << SCORE_SHIFT)
+                | ((long) Math.max(0, Math.min(depth, 0xFF)) << DEPTH_SHIFT) | ((long) bound << BOUND_SHIFT)
+                | ((long) currentAge << AGE_SHIFT) | USED;
+        table[replace] = key ^ data;
+        table[replace + 1] = data;
+    }
+
+    /**
+     * Starts a new search. Entries from earlier searches are kept, but are the
+     * first to be replaced.
+     */
+    public void newSearch() {
+        age = (age + 1) & AGE_MASK;
+    }
+
+    /**
+     * Removes every entry from the table. Must not be called while a search is
+     * running.
+     */
+    public void clear() {
+        Arrays.fill(table, 0L);
+        age = 0;
+    }
+
+    /**
+     * Gets the number of entries the table can hold.
+     *
+     * @return The number of entries.
+     */
+    public int getSize() {
+        return table.length / LONGS_PER_ENTRY;
+    }
+
+    /**
+     * Gets how full the table is with entries from the current search, in
+     * permille. Only the first thousand entries are counted, so this is an
+     * estimate for large tables.
+     *
+     * @return The number of used entries per thousand.
+     */
+    public int getHashfull() {
+        final int entries = Math.min(1000, getSize());
+        int used = 0;
+        for (int i = 0; i < entries * LONGS_PER_ENTRY; i += LONGS_PER_ENTRY) {
+            final long data = table[i + 1];
+            if (data != MISS && getAge(data) == age)
+                used++;
+        }
+        return used * 1000 / entries;
+    }
+
+    /**
+     * Gets the best move of an entry.
+     *
+     * @param entry The entry.
+     * @return The move, or {@link Move#NONE}.
+     */
+    public static int getMove(long entry) {
+        return (int) (entry & 0xFFFF);
+    }
+
+    /**
+     * Gets the score of an entry.
+     *
+     * @param entry The entry.
+     * @return The score, with mates counted from the position.
+     */
+    public static int getScore(long entry) {
+        return (short) (entry >>> SCORE_SHIFT);
+    }
+
+    /**
+     * Gets the depth of an entry.
+     *
+     * @param entry The entry.
+     * @return The depth the position was searched to.
+     */
+    public static int getDepth(long entry) {
+        return (int) ((entry >>> DEPTH_SHIFT) & 0xFF);
+    }
+
+    /**
+     * Gets the bound of an entry.
+     *
+     * @param entry The entry.
+     * @return {@link #EXACT}, {@link #LOWER} or {@link #UPPER}.
+     */
+    public static int getBound(long entry) {
+        return (int) ((entry >>> BOUND_SHIFT) & 0x3);
+    }
+
+    /**
+     * Gets the search an entry was stored in.
+     */
+    private static int getAge(long entry) {
+        return (int) ((entry >>> AGE_SHIFT) & AGE_MASK);
+    }
+
+    /**
+     * Gets the index of the first {@code long} of the bucket of a key.
+     */
+    private int getBucket(long key) {
+        return ((int) key & bucketMask) * LONGS_PER_BUCKET;
+    }
+}
@@ -1,10 +1,10 @@
 package sjakk.pieces;
 
-import java.util.List;
-
 import sjakk.ChessBoard;
+import sjakk.PieceType;
 import sjakk.Player;
 import sjakk.Position;
+import sjakk.utils.MagicBitboards;
 
 /**
  * A Bishop is a piece that can move in a straight line in any diagonal. It uses
@@ -21,13 +21,27 @@ public class Bishop extends LinearPiece {
      * @param owner    The owner of the Bishop.
      */
     public Bishop(Position position, ChessBoard board, Player owner) {
-        super(position, board, owner, "Bishop");
+        super(position, board, owner);
+    }
+
+    /**
+     * Creates a view of the Bishop that is already on a square of a board.
+     * 
+     * @param board    The board the Bishop is on.
+     * @param position The position of the Bishop.
+     * @param white    Whether the Bishop is white.
+     */
+    Bishop(ChessBoard board, Position position, boolean white) {
+        super(board, position, white);
+    }
+
+    @Override
+    public PieceType getType() {
+        return PieceType.BISHOP;
+    }
 
-        super.setDirections(List.of(
-                new Position(1, 1), // UP-RIGHT
-                new Position(1, -1), // DOWN-RIGHT
-                new Position(-1, 1), // UP-LEFT
-                new Position(-1, -1) // DOWN-LEFT
-        ));
+    @Override
+    protected long getAttacks(long occupied) {
+        return MagicBitboards.bishopAttacks(getSquare(), occupied);
     }
 }
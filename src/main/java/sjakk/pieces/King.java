@@ -4,8 +4,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 
 import sjakk.ChessBoard;
+import sjakk.PieceType;
 import sjakk.Player;
 import sjakk.Position;
+import sjakk.utils.Bitboards;
 
 /**
  * A King is a {@link Piece} that can move one step in any direction. It can
@@ -21,7 +23,23 @@ public class King extends Piece {
      * @param owner    The owner of the king.
      */
     public King(Position position, ChessBoard board, Player owner) {
-        super(position, board, owner, "King");
+        super(position, board, owner);
+    }
+
+    /**
+     * Creates a view of the king that is already on a square of a board.
+     * 
+     * @param board    The board the king is on.
+     * @param position The position of the king.
+     * @param white    Whether the king is white.
+     */
+    King(ChessBoard board, Position position, boolean white) {
+        super(board, position, white);
+    }
+
+    @Override
+    public PieceType getType() {
+        return PieceType.KING;
     }
 
     /**
@@ -30,22 +48,20 @@ public class King extends Piece {
      * @return {@code true} if the king is in check, {@code false} otherwise.
      */
     public boolean inCheck() {
-        return positionIsInCheck(this.pos);
+        return positionIsInCheck(pos);
     }
 
     /**
-     * Returns whether or not a position is in check for the king.
+     * Returns whether or not a position is in check for the king. This is a lookup
+     * in the attack map of the other color, where the king itself does not shield
+     * a position behind it from a line of attack.
      * 
      * @param position The position to check.
      * @return {@code true} if the position is in check, {@code false} otherwise.
+     * @see ChessBoard#getAttackMap(boolean)
      */
     private boolean positionIsInCheck(Position position) {
-        for (final Piece piece : board) {
-            if (piece.getOwner() != owner && piece.threatening(position)) {
-                return true;
-            }
-        }
-        return false;
+        return (board.getAttackMap(!isWhite()) & Bitboards.bit(position)) != 0;
     }
 
     /**
@@ -55,7 +71,12 @@ public class King extends Piece {
      *         {@code false} otherwise.
      */
     private boolean canCastleQueen() {
-        if (!owner.canCastleQueenSide()) {
+        if (!getOwner().canCastleQueenSide()) {
+            return false;
+        }
+
+        // Check if there is a rook of the same color in the corner
+        if ((board.getBitboard(PieceType.ROOK, isWhite()) & Bitboards.bit(0, pos.getY())) == 0) {
             return false;
         }
 
@@ -65,24 +86,20 @@ public class King extends Piece {
         }
 
         // Check if king is in check after moving one step
-        if (positionIsInCheck(new Position(pos.getX() - 1, pos.getY()))) {
+        if (positionIsInCheck(Position.of(pos.getX() - 1, pos.getY()))) {
             return false;
         }
 
         // Check if king is in check after moving two steps
-        if (positionIsInCheck(new Position(pos.getX() - 2, pos.getY()))) {
+        if (positionIsInCheck(Position.of(pos.getX() - 2, pos.getY()))) {
             return false;
         }
 
         // Check if there are pieces between the king and the rook (in this case 3
         // moves)
-        for (int i = pos.getX() - 1; i > pos.getX() - 4; i--) {
-            if (board.getPosition(new Position(i, pos.getY())) != null) {
-                return false;
-            }
-        }
-
-        return true;
+        final long between = Bitboards.bit(pos.getX() - 1, pos.getY()) | Bitboards.bit(pos.getX() - 2, pos.getY())
+                | Bitboards.bit(pos.getX() - 3, pos.getY());
+        return (board.getOccupancy() & between) == 0;
     }
 
     /**
@@ -92,7 +109,12 @@ public class King extends Piece {
      *         {@code false} otherwise.
      */
     private boolean canCastleKing() {
-        if (!owner.canCastleKingSide()) {
+        if (!getOwner().canCastleKingSide()) {
+            return false;
+        }
+
+        // Check if there is a rook of the same color in the corner
+        if ((board.getBitboard(PieceType.ROOK, isWhite()) & Bitboards.bit(7, pos.getY())) == 0) {
             return false;
         }
 
@@ -102,23 +124,19 @@ public class King extends Piece {
         }
 
         // Check if king is in check after moving one step
-        if (positionIsInCheck(new Position(pos.getX() + 1, pos.getY()))) {
+        if (positionIsInCheck(Position.of(pos.getX() + 1, pos.getY()))) {
             return false;
         }
 
         // Check if king is in check after moving two steps
-        if (positionIsInCheck(new Position(pos.getX() + 2, pos.getY()))) {
+        if (positionIsInCheck(Position.of(pos.getX() + 2, pos.getY()))) {
             return false;
         }
 
         // Check if there are pieces between the king and the rook (in this case 2
         // moves)
-        for (int i = pos.getX() + 1; i < pos.getX() + 3; i++) {
-            if (board.getPosition(new Position(i, pos.getY())) != null) {
-                return false;
-            }
-        }
-        return true;
+        final long between = Bitboards.bit(pos.getX() + 1, pos.getY()) | Bitboards.bit(pos.getX() + 2, pos.getY());
+        return (board.getOccupancy() & between) == 0;
     }
 
     /**
@@ -132,11 +150,11 @@ public class King extends Piece {
         final Collection<Position> legalMoves = new ArrayList<Position>();
 
         if (canCastleQueen()) {
-            legalMoves.add(new Position(pos.getX() - 2, pos.getY()));
+            legalMoves.add(Position.of(pos.getX() - 2, pos.getY()));
         }
 
         if (canCastleKing()) {
-            legalMoves.add(new Position(pos.getX() + 2, pos.getY()));
+            legalMoves.add(Position.of(pos.getX() + 2, pos.getY()));
         }
 
         return legalMoves;
@@ -145,38 +163,14 @@ public class King extends Piece {
     @Override
     public Collection<Position> getLegalMoves() {
         final Collection<Position> legalMoves = new ArrayList<Position>();
-        for (int i = -1; i <= 1; i++) {
-            for (int j = -1; j <= 1; j++) {
-                if (i == 0 && j == 0) {
-                    continue;
-                }
-
-                final Position p = new Position(getX() + i, getY() + j);
-                if (positionIsInCheck(p)) {
-                    continue;
-                }
-                // Has to be inside board
-                if (!p.insideBoard()) {
-                    continue;
-                }
-
-                // Can't move to a position with a piece of the same color
-                if (board.getPosition(p) != null && board.getPosition(p).getOwner() == owner) {
-                    continue;
-                }
-
-                final Piece newPosPiece = board.getPosition(p);
-
-                board.setPosition(p, this);
-                board.setPosition(pos, null);
-
-                final boolean posInCheck = positionIsInCheck(p);
-                board.setPosition(p, newPosPiece);
-                board.setPosition(pos, this);
-
-                if (!posInCheck)
-                    legalMoves.add(p);
-            }
+
+        // Can't move to a position with a piece of the same color, or a position
+        // that is in check
+        long targets = Bitboards.KING_ATTACKS[getSquare()] & ~board.getOccupancy(isWhite())
+                & ~board.getAttackMap(!isWhite());
+        while (targets != 0) {
+            legalMoves.add(Bitboards.toPosition(Bitboards.lowestSquare(targets)));
+            targets = Bitboards.popLowest(targets);
         }
 
         legalMoves.addAll(getCastlingMoves());
@@ -185,37 +179,6 @@ public class King extends Piece {
 
     @Override
     protected boolean threatening(Position position) {
-        for (int i = -1; i <= 1; i++) {
-            for (int j = -1; j <= 1; j++) {
-                if (i == 0 && j == 0) {
-                    continue;
-                }
-                final Position p = new Position(getX() + i, getY() + j);
-                if (p.equals(position)) {
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
-
-    @Override
-    public void move(Position to) throws IllegalArgumentException {
-        if (!isValidMove(to)) {
-            throw new IllegalArgumentException("Illegal move");
-        }
-
-        // Castling
-        final int y = pos.getY();
-        if (to.getX() == pos.getX() - 2) {
-            // Castling queen side
-            board.move(board.getPosition(new Position(0, y)), new Position(3, y), true);
-        } else if (to.getX() == pos.getX() + 2) {
-            // Castling king side
-            board.move(board.getPosition(new Position(7, y)), new Position(5, y), true);
-        }
-
-        // Move the king himself
-        board.move(this, to, true);
+        return (Bitboards.KING_ATTACKS[getSquare()] & Bitboards.bit(position)) != 0;
     }
 }
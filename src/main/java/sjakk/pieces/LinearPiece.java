@@ -2,16 +2,18 @@ package sjakk.pieces;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 
 import sjakk.ChessBoard;
 import sjakk.Player;
 import sjakk.Position;
+import sjakk.utils.Bitboards;
 
 /**
  * A linear piece is a {@link Piece} that can move in a straight line for any
  * length.
- * Here verical, horizontal, and diagonal.
+ * Here verical, horizontal, and diagonal. The squares a linear piece attacks
+ * are looked up in the precomputed tables of
+ * {@link sjakk.utils.MagicBitboards}.
  * 
  * @see Bishop
  * @see Rook
@@ -19,82 +21,53 @@ import sjakk.Position;
  */
 public abstract class LinearPiece extends Piece {
 
-    private Collection<Position> legalDirections = new ArrayList<Position>();
-
     /**
-     * Creates a new LinearPiece at a given position on a board for a owner with a
-     * name.
+     * Creates a new LinearPiece at a given position on a board for a owner.
      * 
      * @param position The position of the piece.
      * @param board    The board the piece is on.
      * @param owner    The owner of the piece.
-     * @param name     The name of the piece.
      * @see Piece
      */
-    public LinearPiece(Position position, ChessBoard board, Player owner, String name) {
-        super(position, board, owner, name);
+    public LinearPiece(Position position, ChessBoard board, Player owner) {
+        super(position, board, owner);
+    }
+
+    /**
+     * Creates a view of a LinearPiece that is already on a square of a board.
+     * 
+     * @param board    The board the piece is on.
+     * @param position The position of the piece.
+     * @param white    Whether the piece is white.
+     */
+    LinearPiece(ChessBoard board, Position position, boolean white) {
+        super(board, position, white);
     }
 
     @Override
     public Collection<Position> getLegalMoves() {
         final Collection<Position> legalMoves = new ArrayList<Position>();
 
-        for (final Position tmpDir : legalDirections) {
-            Position currentPosition = new Position(pos).add(tmpDir);
-
-            while (currentPosition.insideBoard()) {
-                if (board.getPosition(currentPosition) != null
-                        && board.getPosition(currentPosition).getOwner() == this.owner) {
-                    break;
-                }
-
-                if (messesUpcheck(currentPosition)) {
-                    // If a move would put the king in check, it is not a legal move
-                    // If the position had a piece on it, we can't check further
-                    if (board.getPosition(currentPosition) != null) {
-                        break;
-                    }
-                    currentPosition = currentPosition.add(tmpDir);
-                    continue;
-                }
-
-                if (board.getPosition(currentPosition) == null) {
-                    legalMoves.add(currentPosition);
-                } else {
-                    if (board.getPosition(currentPosition).getOwner() != this.owner) {
-                        legalMoves.add(currentPosition);
-                    }
-                    break;
-                }
-                currentPosition = currentPosition.add(tmpDir);
-            }
+        // If a move would put the king in check, it is not a legal move
+        long targets = getAttacks(board.getOccupancy()) & ~board.getOccupancy(isWhite()) & getLegalityMask();
+        while (targets != 0) {
+            legalMoves.add(Bitboards.toPosition(Bitboards.lowestSquare(targets)));
+            targets = Bitboards.popLowest(targets);
         }
         return legalMoves;
     }
 
     @Override
     protected boolean threatening(Position position) {
-        for (final Position tmpDir : legalDirections) {
-            Position currentPosition = new Position(pos).add(tmpDir);
-            while (currentPosition.insideBoard()) {
-                if (currentPosition.equals(position)) {
-                    return true;
-                }
-                if (board.getPosition(currentPosition) != null) {
-                    break;
-                }
-                currentPosition = currentPosition.add(tmpDir);
-            }
-        }
-        return false;
+        return (getAttacks(board.getOccupancy()) & Bitboards.bit(position)) != 0;
     }
 
     /**
-     * Sets the directions the piece can move in.
+     * Returns the squares the piece attacks from its position. A line of attack
+     * stops at, and includes, the first piece in the way.
      * 
-     * @param directions The directions the piece can move in.
+     * @param occupied The bitboard of all occupied squares.
+     * @return The bitboard of attacked squares.
      */
-    protected void setDirections(List<Position> directions) {
-        legalDirections = new ArrayList<Position>(directions);
-    }
+    protected abstract long getAttacks(long occupied);
 }
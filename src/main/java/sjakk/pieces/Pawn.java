@@ -5,8 +5,10 @@ import java.util.Collection;
 import java.util.List;
 
 import sjakk.ChessBoard;
+import sjakk.PieceType;
 import sjakk.Player;
 import sjakk.Position;
+import sjakk.utils.Bitboards;
 
 /**
  * A Pawn is a {@link Piece} that can move one step forward, capture only one
@@ -17,9 +19,6 @@ import sjakk.Position;
  */
 public class Pawn extends Piece {
 
-    private boolean hasMoved = false;
-    private boolean hasMadeAnPassant = false;
-
     /**
      * Creates a new pawn on a position on a board for a player.
      * 
@@ -28,14 +27,33 @@ public class Pawn extends Piece {
      * @param owner    The owner of the pawn.
      */
     public Pawn(Position position, ChessBoard board, Player owner) {
-        super(position, board, owner, "Pawn");
-        if (getY() != (owner.isWhite() ? 1 : 6)) {
-            hasMoved = true;
-        }
+        super(position, board, owner);
+    }
+
+    /**
+     * Creates a view of the pawn that is already on a square of a board.
+     * 
+     * @param board    The board the pawn is on.
+     * @param position The position of the pawn.
+     * @param white    Whether the pawn is white.
+     */
+    Pawn(ChessBoard board, Position position, boolean white) {
+        super(board, position, white);
     }
 
     @Override
-    public boolean isValidMove(Position to) {
+    public PieceType getType() {
+        return PieceType.PAWN;
+    }
+
+    /**
+     * Checks if the pawn can reach a position by a push, a capture or an en
+     * passant, without checking that the king is safe after the move.
+     * 
+     * @param to The position to move to.
+     * @return {@code true} if the pawn can reach the position.
+     */
+    private boolean canReach(Position to) {
         if (getX() != to.getX()) {
             return isValidCaptureMove(to);
         }
@@ -46,20 +64,21 @@ public class Pawn extends Piece {
     public Collection<Position> getLegalMoves() {
         final Collection<Position> legalMoves = new ArrayList<>();
 
+        final int dir = getOwner().getDir();
         final Collection<Position> testPostitions = new ArrayList<>(List.of(
-                new Position(pos.getX(), pos.getY() + owner.getDir()), // 1 forward
-                new Position(pos.getX() + 1, pos.getY() + owner.getDir()), // 1 forward, 1 right
-                new Position(pos.getX() - 1, pos.getY() + owner.getDir()) // 1 forward, 1 left
+                Position.of(pos.getX(), pos.getY() + dir), // 1 forward
+                Position.of(pos.getX() + 1, pos.getY() + dir), // 1 forward, 1 right
+                Position.of(pos.getX() - 1, pos.getY() + dir) // 1 forward, 1 left
         ));
 
-        if (!hasMoved) {
-            testPostitions.add(new Position(pos.getX(), pos.getY() + 2 * owner.getDir())); // 2 forward
+        if (!hasMoved()) {
+            testPostitions.add(Position.of(pos.getX(), pos.getY() + 2 * dir)); // 2 forward
         }
 
         for (final Position p : testPostitions) {
             if (messesUpcheck(p))
                 continue;
-            if (isValidMove(p)) {
+            if (canReach(p)) {
                 legalMoves.add(p);
             }
         }
@@ -67,45 +86,41 @@ public class Pawn extends Piece {
         return legalMoves;
     }
 
-    @Override
-    public void move(Position to) {
-        if (!getLegalMoves().contains(to)) {
-            throw new IllegalArgumentException("Illegal move");
-        }
-        if (moveIsEnPassant(to)) {
-            this.hasMadeAnPassant = true;
-        }
-        board.move(this, to);
-        this.pos = to;
-        hasMoved = true;
-    }
-
     /**
-     * Set if the pawn has made an en passant.
+     * Returns whether or not the pawn has moved. Pawns can only move forwards, so
+     * this is the case exactly when the pawn has left its starting rank.
      * 
-     * @param hasMadeAnPassant {@code true} if the pawn has made an en passant,
-     *                         {@code false} otherwise.
+     * @return {@code true} if the pawn has moved, {@code false} otherwise.
      */
-    public void setHasMadeAnPassant(boolean hasMadeAnPassant) {
-        this.hasMadeAnPassant = hasMadeAnPassant;
+    public boolean hasMoved() {
+        return getY() != (isWhite() ? 1 : 6);
     }
 
     /**
-     * Returns if the pawn has made an en passant.
-     * 
-     * @return {@code true} if the pawn has made an en passant, {@code false}
-     *         otherwise.
+     * Returns whether or not a given move for the pawn will set the king in check.
+     * An en passant also removes the captured pawn, which could open a line to the
+     * king, so it is checked by looking for attacks on the king with the
+     * occupancy after the move.
      */
-    public boolean getHasMadeEnPassant() {
-        return hasMadeAnPassant;
+    @Override
+    protected boolean messesUpcheck(Position to) {
+        if (!moveIsEnPassant(to)) {
+            return super.messesUpcheck(to);
+        }
+
+        final int kingSquare = board.getKingSquare(isWhite());
+        if (kingSquare == -1) {
+            return false;
+        }
+        final long captured = Bitboards.bit(to.getX(), getY());
+        final long occupied = board.getOccupancy() ^ Bitboards.bit(pos) ^ Bitboards.bit(to) ^ captured;
+        return (board.getAttackers(kingSquare, !isWhite(), occupied) & ~captured) != 0;
     }
 
     @Override
     protected boolean threatening(Position position) {
-        if (Math.abs(pos.getX() - position.getX()) == 1 && pos.getY() + owner.getDir() == position.getY()) {
-            return true;
-        }
-        return false;
+        final long attacks = Bitboards.PAWN_ATTACKS[Bitboards.colorIndex(isWhite())][getSquare()];
+        return (attacks & Bitboards.bit(position)) != 0;
     }
 
     /**
@@ -121,11 +136,11 @@ public class Pawn extends Piece {
         if (board.getPosition(to) != null) {
             return false;
         }
-        if (pos.getY() + owner.getDir() == to.getY()) {
+        if (pos.getY() + getOwner().getDir() == to.getY()) {
             return true;
         }
-        if (!hasMoved && pos.getY() + 2 * owner.getDir() == to.getY()
-                && board.getPosition(new Position(getX(), getY() + owner.getDir())) == null) {
+        if (!hasMoved() && pos.getY() + 2 * getOwner().getDir() == to.getY()
+                && board.getPosition(Position.of(getX(), getY() + getOwner().getDir())) == null) {
             return true;
         }
         return false;
@@ -142,19 +157,15 @@ public class Pawn extends Piece {
         if (Math.abs(pos.getX() - to.getX()) != 1) {
             return false;
         }
-        if (pos.getY() + owner.getDir() != to.getY()) {
+        if (pos.getY() + getOwner().getDir() != to.getY()) {
             return false;
         }
-        if (moveIsEnPassant(to)) {
-            return true;
+        // Look the square up once, an empty square can only be an en passant
+        final Piece target = board.getPosition(to);
+        if (target == null) {
+            return moveIsEnPassant(to);
         }
-        if (board.getPosition(to) == null) {
-            return false;
-        }
-        if (board.getPosition(to).getOwner() == owner) {
-            return false;
-        }
-        return true;
+        return target.isWhite() != isWhite();
     }
 
     /**
@@ -167,19 +178,16 @@ public class Pawn extends Piece {
         if (Math.abs(pos.getX() - to.getX()) != 1) {
             return false;
         }
-        if (pos.getY() + owner.getDir() != to.getY()) {
+        if (pos.getY() + getOwner().getDir() != to.getY()) {
             return false;
         }
         if (board.getPosition(to) != null) {
             return false;
         }
-        final Piece possiblyTake = board.getPosition(new Position(to.getX(), to.getY() - owner.getDir()));
-        if (!(possiblyTake instanceof Pawn)) {
+        if (!to.equals(board.getEnPassantTarget())) {
             return false;
         }
-        if (board.getLastPieceMoved() == possiblyTake && possiblyTake.getMoveCount() == 1) {
-            return true;
-        }
-        return false;
+        final Piece possiblyTake = board.getPosition(Position.of(to.getX(), to.getY() - getOwner().getDir()));
+        return possiblyTake instanceof Pawn && possiblyTake.isWhite() != isWhite();
     }
 }
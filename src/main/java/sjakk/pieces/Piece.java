@@ -1,15 +1,28 @@
 package sjakk.pieces;
 
 import java.util.Collection;
+import java.util.Objects;
 
 import sjakk.ChessBoard;
+import sjakk.LegalityMasks;
+import sjakk.PieceType;
 import sjakk.Player;
 import sjakk.Position;
+import sjakk.utils.Bitboards;
+import sjakk.utils.PieceCode;
 
 /**
  * This abstract class represents pieces on a board. It can be used to
  * move pieces on the board, get the possible moves for a piece, see whether or
  * not a position is threatened by the piece, and more.
+ * <p>
+ * A piece is a view of a square of the board. The board only keeps a code for
+ * the type and color of the piece on every square, and a view keeps the type
+ * and color it was created with, so it never changes owner. The move count of a
+ * piece is read from the board. A new view is created every time a piece is
+ * looked up on the board, so pieces are compared with {@link #equals(Object)}. A
+ * piece follows itself when it is moved with {@link #move(Position)}, but other
+ * views of it keep looking at the square it moved from.
  * 
  * @author Runar Saur Modahl
  * @see King
@@ -66,34 +79,96 @@ public abstract class Piece {
         return piece;
     }
 
-    protected Position pos;
-    protected ChessBoard board;
-    protected Player owner;
-    protected String name;
+    /**
+     * Gets a view of the piece on a square of a board.
+     * 
+     * @param board  the board the piece is on
+     * @param square the square index of the piece
+     * @return the piece, or null if the square is empty
+     * @see ChessBoard#getPieceCode(int)
+     */
+    public static Piece of(ChessBoard board, int square) {
+        final byte code = board.getPieceCode(square);
+        if (code == PieceCode.EMPTY)
+            return null;
+
+        final Position position = Position.of(square);
+        final boolean white = PieceCode.isWhite(code);
+        switch (PieceCode.getType(code)) {
+            case KING:
+                return new King(board, position, white);
+            case QUEEN:
+                return new Queen(board, position, white);
+            case ROOK:
+                return new Rook(board, position, white);
+            case BISHOP:
+                return new Bishop(board, position, white);
+            case KNIGHT:
+                return new Knight(board, position, white);
+            default:
+                return new Pawn(board, position, white);
+        }
+    }
 
-    protected int moveCount = 0;
+    protected final ChessBoard board;
+    protected final boolean white;
+    protected Position pos;
 
     /**
-     * Creates a new piece at the given position on the given board. The pice is
-     * automatically placed on the board if its not already in position.
+     * Creates a new piece at the given position on the given board. The piece is
+     * placed on the board, replacing any piece on the position.
      * 
      * @param position the position of the piece
      * @param board    the board the piece is on
-     * @param color    the color of the piece
+     * @param owner    the owner of the piece
      */
-    public Piece(Position position, ChessBoard board, Player owner, String name) {
+    public Piece(Position position, ChessBoard board, Player owner) {
         this.pos = position;
         this.board = board;
-        this.owner = owner;
-        this.name = name;
-        if (board.getPosition(position) != this) {
-            board.setPosition(position, this);
-        }
+        this.white = owner.isWhite();
+        board.setPieceCode(Bitboards.square(position), PieceCode.of(white, getType()));
+    }
+
+    /**
+     * Creates a view of a piece that is already on the board.
+     * 
+     * @param board    the board the piece is on
+     * @param position the position of the piece
+     * @param white    whether the piece is white
+     * @see #of(ChessBoard, int)
+     */
+    protected Piece(ChessBoard board, Position position, boolean white) {
+        this.board = board;
+        this.pos = position;
+        this.white = white;
     }
 
     @Override
     public String toString() {
-        return name;
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * Returns whether another object is a view of the same piece, that is a piece
+     * of the same type and color on the same square of the same board.
+     * 
+     * @param obj the object to compare with
+     * @return {@code true} if the object is the same piece
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof Piece))
+            return false;
+        final Piece other = (Piece) obj;
+        return board == other.board && pos.equals(other.pos) && getType() == other.getType()
+                && white == other.white;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(System.identityHashCode(board), pos, getType(), white);
     }
 
     /**
@@ -103,15 +178,16 @@ public abstract class Piece {
      * @return a char representation of the piece.
      */
     public char toChar() {
-        char out = name.toLowerCase().toCharArray()[0];
-        if (this instanceof Knight)
-            out = 'n';
-
-        if (owner.isWhite())
-            out = Character.toUpperCase(out);
-        return out;
+        return PieceCode.toChar(PieceCode.of(isWhite(), getType()));
     }
 
+    /**
+     * Returns the type of the piece.
+     * 
+     * @return the type of the piece
+     */
+    public abstract PieceType getType();
+
     /**
      * Returns a collection of all legal moves for this piece.
      * 
@@ -137,14 +213,28 @@ public abstract class Piece {
         return pos.getY();
     }
 
+    /**
+     * Returns the square index of the piece, as used by the bitboards of the
+     * board.
+     * 
+     * @return the square index of the piece
+     * @see Bitboards
+     */
+    public int getSquare() {
+        return Bitboards.square(pos);
+    }
+
     /**
      * Returns whether or not the given position is a legal move for this piece.
+     * Only the given move is looked up in the legal targets of the piece, the
+     * list of legal moves is not created.
      * 
      * @param to the position to check
      * @return {@code true} if the given position is a legal move for this piece.
+     * @see ChessBoard#getLegalTargets(int)
      */
     public boolean isValidMove(Position to) {
-        return getLegalMoves().contains(to);
+        return to.insideBoard() && (board.getLegalTargets(getSquare()) & Bitboards.bit(to)) != 0;
     }
 
     /**
@@ -154,7 +244,7 @@ public abstract class Piece {
      *         black)
      */
     public boolean isWhite() {
-        return owner.isWhite();
+        return white;
     }
 
     /**
@@ -163,45 +253,30 @@ public abstract class Piece {
      * @return the position of the piece
      */
     public Position getPos() {
-        return new Position(pos);
+        return pos;
     }
 
     /**
-     * Sets the position of the piece.
-     * 
-     * @param pos the new position of the piece
-     */
-    public void setPos(Position pos) {
-        if (pos.getX() < 0 || pos.getX() > 7 || pos.getY() < 0 || pos.getY() > 7)
-            throw new IllegalArgumentException("Not a valid position");
-        this.pos = pos;
-    }
-
-    /**
-     * Moves the piece to the given position on the board.
+     * Moves the piece to the given position on the board. The move is validated
+     * once, by the board. This piece follows the move, and is a view of the new
+     * position afterwards.
      * 
      * @param to the position to move to
      * @throws IllegalArgumentException if the move is not legal
+     * @see ChessBoard#move(Piece, Position)
      */
     public void move(Position to) throws IllegalArgumentException {
-        if (!isValidMove(to)) {
-            throw new IllegalArgumentException("Illegal move");
-        }
         board.move(this, to);
+        pos = to;
     }
 
     /**
      * Gets the number of times the piece has moved.
+     * 
+     * @see ChessBoard#getMoveCount(int)
      */
     public int getMoveCount() {
-        return moveCount;
-    }
-
-    /**
-     * Adds one to the move count.
-     */
-    public void addMoveCount() {
-        moveCount++;
+        return board.getMoveCount(getSquare());
     }
 
     /**
@@ -210,7 +285,7 @@ public abstract class Piece {
      * @return the owner of the piece
      */
     public Player getOwner() {
-        return owner;
+        return board.getPlayer(isWhite());
     }
 
     /**
@@ -223,23 +298,29 @@ public abstract class Piece {
 
     /**
      * Returns whether or not a given move for the piece will set the king in check.
-     * Will <b>not</b> modify the board.
+     * Will <b>not</b> modify the board, the answer is looked up in the pins and
+     * checks of the position.
      * 
      * @param to the position to move the piece to
      * @return {@code true} if the king is in check after the move, {@code false}
      *         otherwise
+     * @see LegalityMasks
      */
     protected boolean messesUpcheck(Position to) {
         if (!to.insideBoard())
             return false;
 
-        final Piece tmp = board.getPosition(to);
-        board.setPosition(to, this);
-        board.setPosition(pos, null);
+        return (getLegalityMask() & Bitboards.bit(to)) == 0;
+    }
 
-        final boolean messesUp = board.inCheck(owner);
-        board.setPosition(pos, this);
-        board.setPosition(to, tmp);
-        return messesUp;
+    /**
+     * Returns the squares this piece can move to without setting the king in
+     * check, given that it can reach them. Not valid for the king itself.
+     * 
+     * @return the bitboard of the squares the piece can legally move to
+     * @see LegalityMasks#getMask(int)
+     */
+    protected long getLegalityMask() {
+        return board.getLegalityMasks(isWhite()).getMask(getSquare());
     }
 }
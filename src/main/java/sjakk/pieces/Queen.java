@@ -1,14 +1,14 @@
 package sjakk.pieces;
 
-import java.util.List;
-
 import sjakk.ChessBoard;
+import sjakk.PieceType;
 import sjakk.Player;
 import sjakk.Position;
+import sjakk.utils.MagicBitboards;
 
 /**
  * A Queen is a {@link Piece} that can move in a straight line in any direction.
- * It uses the {@link LinearPiece} class with all directions available.
+ * It uses the {@link LinearPiece} class with both rook and bishop attacks.
  * 
  * @see LinearPiece
  * @see Piece
@@ -23,17 +23,27 @@ public class Queen extends LinearPiece {
      * @param owner    The owner of the Queen.
      */
     public Queen(Position position, ChessBoard board, Player owner) {
-        super(position, board, owner, "Queen");
+        super(position, board, owner);
+    }
+
+    /**
+     * Creates a view of the Queen that is already on a square of a board.
+     * 
+     * @param board    The board the Queen is on.
+     * @param position The position of the Queen.
+     * @param white    Whether the Queen is white.
+     */
+    Queen(ChessBoard board, Position position, boolean white) {
+        super(board, position, white);
+    }
+
+    @Override
+    public PieceType getType() {
+        return PieceType.QUEEN;
+    }
 
-        super.setDirections(List.of(
-                new Position(0, 1), // UP
-                new Position(0, -1), // DOWN
-                new Position(1, 0), // RIGHT
-                new Position(-1, 0), // LEFT
-                new Position(1, 1), // UP-RIGHT
-                new Position(1, -1), // DOWN-RIGHT
-                new Position(-1, 1), // UP-LEFT
-                new Position(-1, -1) // DOWN-LEFT
-        ));
+    @Override
+    protected long getAttacks(long occupied) {
+        return MagicBitboards.queenAttacks(getSquare(), occupied);
     }
 }
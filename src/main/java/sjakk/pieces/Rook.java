@@ -1,10 +1,10 @@
 package sjakk.pieces;
 
-import java.util.List;
-
 import sjakk.ChessBoard;
+import sjakk.PieceType;
 import sjakk.Player;
 import sjakk.Position;
+import sjakk.utils.MagicBitboards;
 
 /**
  * A Rook is a {@link Piece} that can move in a straight line horizontally and
@@ -23,13 +23,27 @@ public class Rook extends LinearPiece {
      * @param owner    The owner of the Rook.
      */
     public Rook(Position position, ChessBoard board, Player owner) {
-        super(position, board, owner, "Rook");
+        super(position, board, owner);
+    }
+
+    /**
+     * Creates a view of the Rook that is already on a square of a board.
+     * 
+     * @param board    The board the Rook is on.
+     * @param position The position of the Rook.
+     * @param white    Whether the Rook is white.
+     */
+    Rook(ChessBoard board, Position position, boolean white) {
+        super(board, position, white);
+    }
+
+    @Override
+    public PieceType getType() {
+        return PieceType.ROOK;
+    }
 
-        super.setDirections(List.of(
-                new Position(0, 1), // UP
-                new Position(0, -1), // DOWN
-                new Position(1, 0), // RIGHT
-                new Position(-1, 0) // LEFT
-        ));
+    @Override
+    protected long getAttacks(long occupied) {
+        return MagicBitboards.rookAttacks(getSquare(), occupied);
     }
 }
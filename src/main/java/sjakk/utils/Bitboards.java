@@ -0,0 +1,195 @@
+package sjakk.utils;
+
+import sjakk.Position;
+
+/**
+ * A utility class for working with bitboards. A bitboard is a {@code long}
+ * where every bit represents a square on the board. Bit number
+ * {@code y * 8 + x} represents the square at {@code (x, y)}, so a1 is the least
+ * significant bit and h8 is the most significant bit. All methods in this class
+ * are static, and it is not possible to create an instance of Bitboards.
+ */
+public abstract class Bitboards {
+    /**
+     * A bitboard with no squares set.
+     */
+    public static final long EMPTY = 0L;
+
+    /**
+     * A bitboard with every square on the a-file set.
+     */
+    public static final long FILE_A = 0x0101010101010101L;
+
+    /**
+     * A bitboard with every square on the h-file set.
+     */
+    public static final long FILE_H = 0x8080808080808080L;
+
+    /**
+     * Squares reachable by a knight from every square.
+     */
+    public static final long[] KNIGHT_ATTACKS = new long[64];
+
+    /**
+     * Squares reachable by a king from every square.
+     */
+    public static final long[] KING_ATTACKS = new long[64];
+
+    /**
+     * Squares attacked by a pawn from every square. The first index is 0 for white
+     * and 1 for black.
+     */
+    public static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    static {
+        final int[] knightDX = { 2, 1, -1, -2, -2, -1, 1, 2 };
+        final int[] knightDY = { 1, 2, 2, 1, -1, -2, -2, -1 };
+        for (int square = 0; square < 64; square++) {
+            final int x = square % 8;
+            final int y = square / 8;
+            for (int i = 0; i < knightDX.length; i++) {
+                KNIGHT_ATTACKS[square] |= bit(x + knightDX[i], y + knightDY[i]);
+            }
+            for (int i = -1; i <= 1; i++) {
+                for (int j = -1; j <= 1; j++) {
+                    if (i != 0 || j != 0)
+                        KING_ATTACKS[square] |= bit(x + i, y + j);
+                }
+            }
+            PAWN_ATTACKS[0][square] = bit(x - 1, y + 1) | bit(x + 1, y + 1);
+            PAWN_ATTACKS[1][square] = bit(x - 1, y - 1) | bit(x + 1, y - 1);
+        }
+    }
+
+    /**
+     * Returns the square index of the given coordinates.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the square index, or -1 if the coordinates are outside the board
+     */
+    public static int square(int x, int y) {
+        if (x < 0 || x > 7 || y < 0 || y > 7)
+            return -1;
+        return y * 8 + x;
+    }
+
+    /**
+     * Returns the square index of the given position.
+     *
+     * @param position the position
+     * @return the square index, or -1 if the position is outside the board
+     */
+    public static int square(Position position) {
+        return square(position.getX(), position.getY());
+    }
+
+    /**
+     * Returns a bitboard with only the given square set.
+     *
+     * @param square the square index
+     * @return the bitboard, or {@link #EMPTY} if the square is outside the board
+     */
+    public static long bit(int square) {
+        if (square < 0 || square > 63)
+            return EMPTY;
+        return 1L << square;
+    }
+
+    /**
+     * Returns a bitboard with only the given coordinates set.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the bitboard, or {@link #EMPTY} if the coordinates are outside the
+     *         board
+     */
+    public static long bit(int x, int y) {
+        return bit(square(x, y));
+    }
+
+    /**
+     * Returns a bitboard with only the given position set.
+     *
+     * @param position the position
+     * @return the bitboard, or {@link #EMPTY} if the position is outside the board
+     */
+    public static long bit(Position position) {
+        return bit(square(position));
+    }
+
+    /**
+     * Returns whether or not the given square is set in the bitboard.
+     *
+     * @param bitboard the bitboard
+     * @param square   the square index
+     * @return {@code true} if the square is set
+     */
+    public static boolean isSet(long bitboard, int square) {
+        return (bitboard & bit(square)) != 0;
+    }
+
+    /**
+     * Returns the position of the given square index.
+     *
+     * @param square the square index
+     * @return the position
+     */
+    public static Position toPosition(int square) {
+        return Position.of(square);
+    }
+
+    /**
+     * Returns the index of the lowest set square in the bitboard.
+     *
+     * @param bitboard the bitboard
+     * @return the square index, or 64 if the bitboard is empty
+     */
+    public static int lowestSquare(long bitboard) {
+        return Long.numberOfTrailingZeros(bitboard);
+    }
+
+    /**
+     * Returns the bitboard with the lowest set square removed.
+     *
+     * @param bitboard the bitboard
+     * @return the bitboard without its lowest set square
+     */
+    public static long popLowest(long bitboard) {
+        return bitboard & (bitboard - 1);
+    }
+
+    /**
+     * Returns the number of set squares in the bitboard.
+     *
+     * @param bitboard the bitboard
+     * @return the number of set squares
+     */
+    public static int count(long bitboard) {
+        return Long.bitCount(bitboard);
+    }
+
+    /**
+     * Returns the squares attacked by all the given pawns at once.
+     *
+     * @param pawns the bitboard of the pawns
+     * @param white whether the pawns are white (attacking upwards) or black
+     * @return the attacked squares
+     */
+    public static long pawnAttacks(long pawns, boolean white) {
+        if (white)
+            return ((pawns << 7) & ~FILE_H) | ((pawns << 9) & ~FILE_A);
+        return ((pawns >>> 9) & ~FILE_H) | ((pawns >>> 7) & ~FILE_A);
+    }
+
+    /**
+     * Returns the index of the color in the bitboard arrays, 0 for white and 1 for
+     * black.
+     *
+     * @param white whether the color is white
+     * @return the color index
+     */
+    public static int colorIndex(boolean white) {
+        return white ? 0 : 1;
+    }
+}
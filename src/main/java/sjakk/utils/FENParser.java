@@ -14,9 +14,10 @@ import javax.swing.filechooser.FileNameExtensionFilter;
 
 import sjakk.ChessBoard;
 import sjakk.PieceColor;
+import sjakk.PieceType;
 import sjakk.Player;
 import sjakk.Position;
-import sjakk.pieces.Pawn;
+import sjakk.PositionSnapshot;
 import sjakk.pieces.Piece;
 
 /**
@@ -84,7 +85,7 @@ public abstract class FENParser {
                     boardIndex += Character.getNumericValue(pieceCharacter);
                 } else {
                     final Player player = Character.isUpperCase(pieceCharacter) ? white : black;
-                    Piece.placePiece(player, new Position(boardIndex, 7 - i), board, pieceCharacter);
+                    Piece.placePiece(player, Position.of(boardIndex, 7 - i), board, pieceCharacter);
                     boardIndex++;
                 }
                 stringIndex++;
@@ -121,13 +122,8 @@ public abstract class FENParser {
         }
 
         // En passant target
-        String enPassantTarget = data[3].equals("-") ? null : data[3];
-        if (enPassantTarget != null) {
-            Position enPassantTargetPosition = new Position(enPassantTarget);
-            int pawnY = (enPassantTargetPosition.getY() == 2 ? 3 : 4);
-            Piece pawn = board.getPosition(new Position(enPassantTargetPosition.getX(), pawnY));
-            pawn.addMoveCount();
-            board.setLastPieceMoved(pawn);
+        if (!data[3].equals("-")) {
+            board.setEnPassantTarget(new Position(data[3]));
         }
 
         // Half moves
@@ -209,16 +205,49 @@ public abstract class FENParser {
      * 
      * @param board the {@link ChessBoard} to generate the FEN-string for.
      * @return the generated FENString.
+     * @see #generateFEN(long[], long[], boolean, int, int, int, int)
      */
     public static String generateFEN(ChessBoard board) {
+        final long[] whitePieces = new long[PieceType.values().length];
+        final long[] blackPieces = new long[PieceType.values().length];
+        for (final PieceType type : PieceType.values()) {
+            whitePieces[type.ordinal()] = board.getBitboard(type, true);
+            blackPieces[type.ordinal()] = board.getBitboard(type, false);
+        }
+        final Position enPassantTarget = board.getEnPassantTarget();
+        return generateFEN(whitePieces, blackPieces, board.getPlayerTurn().isWhite(), board.getCastlingBits(),
+                enPassantTarget == null ? -1 : Bitboards.square(enPassantTarget), board.getHalfMoves(),
+                board.getFullMoves());
+    }
+
+    /**
+     * Generates the FEN-string for a position given by its bitboards. This is
+     * used both for boards and for {@link PositionSnapshot}s, so neither has to
+     * set up the other to be written.
+     * 
+     * @param whitePieces     the bitboards of the white pieces, indexed by piece
+     *                        type.
+     * @param blackPieces     the bitboards of the black pieces, indexed by piece
+     *                        type.
+     * @param whiteToMove     whether white is the player to move.
+     * @param castling        the castling rights as four bits, see
+     *                        {@link ChessBoard#getCastlingBits()}.
+     * @param enPassantSquare the square index of the en passant target, or -1 if
+     *                        there is none.
+     * @param halfMoves       the half move counter.
+     * @param fullMoves       the full move counter.
+     * @return the generated FENString.
+     */
+    public static String generateFEN(long[] whitePieces, long[] blackPieces, boolean whiteToMove, int castling,
+            int enPassantSquare, int halfMoves, int fullMoves) {
         final StringBuilder FENString = new StringBuilder();
 
         // First part of the FEN string
         int emptySpaces = 0;
         for (int y = 7; y >= 0; y--) {
             for (int x = 0; x < 8; x++) {
-                final Piece piece = board.getPosition(new Position(x, y));
-                if (piece == null) {
+                final char piece = getPieceChar(whitePieces, blackPieces, Bitboards.square(x, y));
+                if (piece == 0) {
                     emptySpaces++;
                     continue;
                 }
@@ -226,7 +255,7 @@ public abstract class FENParser {
                     FENString.append(Integer.toString(emptySpaces));
                     emptySpaces = 0;
                 }
-                FENString.append(piece.toChar());
+                FENString.append(piece);
             }
             if (emptySpaces != 0) {
                 FENString.append(Integer.toString(emptySpaces));
@@ -237,29 +266,26 @@ public abstract class FENParser {
         }
 
         // Whos turn?
-        FENString.append(" " + board.getPlayerTurn().toChar());
+        FENString.append(whiteToMove ? " w" : " b");
 
         // What can be castled?
-        FENString.append(" " + board.getCastlingRights());
+        FENString.append(' ');
+        final String rights = "KQkq";
+        for (int i = 0; i < rights.length(); i++) {
+            if ((castling & (1 << i)) != 0)
+                FENString.append(rights.charAt(i));
+        }
+        if ((castling & 0xF) == 0)
+            FENString.append('-');
 
         // Is there an en passant target? Where?
-        Piece lastPieceMoved = board.getLastPieceMoved();
-        if (lastPieceMoved instanceof Pawn && lastPieceMoved.getMoveCount() == 1
-                && (lastPieceMoved.getPos().getY() == 3 || lastPieceMoved.getPos().getY() == 4)) {
-
-            int direction = -lastPieceMoved.getOwner().getDir();
-            Position targetPosition = lastPieceMoved.getPos().add(new Position(0, direction));
-            FENString.append(" " + targetPosition.toString());
-
-        } else {
-            FENString.append(" -");
-        }
+        FENString.append(" " + (enPassantSquare == -1 ? "-" : Bitboards.toPosition(enPassantSquare).toString()));
 
         // Halfmoves
-        FENString.append(" " + board.getHalfMoves());
+        FENString.append(" " + halfMoves);
 
         // Fullmoves
-        FENString.append(" " + board.getFullMoves());
+        FENString.append(" " + fullMoves);
 
         return FENString.toString();
     }
@@ -339,6 +365,24 @@ public abstract class FENParser {
         return null;
     }
 
+    /**
+     * Gets the FEN character of the piece on a square, upper case for white.
+     * 
+     * @param whitePieces the bitboards of the white pieces, indexed by piece type.
+     * @param blackPieces the bitboards of the black pieces, indexed by piece type.
+     * @param square      the square index.
+     * @return the character, or 0 if the square is empty.
+     */
+    private static char getPieceChar(long[] whitePieces, long[] blackPieces, int square) {
+        for (final PieceType type : PieceType.values()) {
+            if (Bitboards.isSet(whitePieces[type.ordinal()], square))
+                return Character.toUpperCase(type.getSymbol());
+            if (Bitboards.isSet(blackPieces[type.ordinal()], square))
+                return type.getSymbol();
+        }
+        return 0;
+    }
+
     /**
      * Shuffles a string using the Fisher-Yates algorithm. This is used internally
      * by the parser to generate a Fischer random position.
@@ -0,0 +1,190 @@
+package sjakk.utils;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A utility class with precomputed attack tables for sliding pieces using magic
+ * bitboards. For every square, the pieces blocking a rook or bishop are masked
+ * out of the occupancy, multiplied by a magic number and shifted down to an
+ * index into a table with the full attack set. This replaces walking each ray
+ * one square at a time with a single table lookup. The magic numbers are found
+ * with a seeded random search when the class is loaded, so the tables are the
+ * same on every run. All methods in this class are static, and it is not
+ * possible to create an instance of MagicBitboards.
+ *
+ * @see Bitboards
+ */
+public abstract class MagicBitboards {
+    private static final int[][] ROOK_DIRECTIONS = { { 0, 1 }, { 0, -1 }, { 1, 0 }, { -1, 0 } };
+    private static final int[][] BISHOP_DIRECTIONS = { { 1, 1 }, { 1, -1 }, { -1, 1 }, { -1, -1 } };
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] ROOK_MAGICS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final long[][] ROOK_TABLE = new long[64][];
+
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final long[] BISHOP_MAGICS = new long[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final long[][] BISHOP_TABLE = new long[64][];
+
+    private static final long[][] BETWEEN = new long[64][64];
+
+    static {
+        final Random random = new Random(0x5AD5EED);
+        for (int square = 0; square < 64; square++) {
+            initSquare(square, ROOK_DIRECTIONS, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_TABLE, random);
+            initSquare(square, BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_TABLE, random);
+        }
+
+        for (int from = 0; from < 64; from++) {
+            for (int to = 0; to < 64; to++) {
+                final long fromBit = Bitboards.bit(from);
+                final long toBit = Bitboards.bit(to);
+                if ((rookAttacks(from, Bitboards.EMPTY) & toBit) != 0) {
+                    BETWEEN[from][to] = rookAttacks(from, toBit) & rookAttacks(to, fromBit);
+                } else if ((bishopAttacks(from, Bitboards.EMPTY) & toBit) != 0) {
+                    BETWEEN[from][to] = bishopAttacks(from, toBit) & bishopAttacks(to, fromBit);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the squares attacked by a rook on the given square.
+     *
+     * @param square   the square index of the rook
+     * @param occupied the bitboard of all occupied squares
+     * @return the attacked squares, including the first blocker in every direction
+     */
+    public static long rookAttacks(int square, long occupied) {
+        final int index = (int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square]);
+        return ROOK_TABLE[square][index];
+    }
+
+    /**
+     * Returns the squares attacked by a bishop on the given square.
+     *
+     * @param square   the square index of the bishop
+     * @param occupied the bitboard of all occupied squares
+     * @return the attacked squares, including the first blocker in every direction
+     */
+    public static long bishopAttacks(int square, long occupied) {
+        final int index = (int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square])
+                >>> BISHOP_SHIFTS[square]);
+        return BISHOP_TABLE[square][index];
+    }
+
+    /**
+     * Returns the squares attacked by a queen on the given square.
+     *
+     * @param square   the square index of the queen
+     * @param occupied the bitboard of all occupied squares
+     * @return the attacked squares, including the first blocker in every direction
+     */
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    /**
+     * Returns the squares strictly between two squares on the same rank, file or
+     * diagonal.
+     *
+     * @param from the first square index
+     * @param to   the second square index
+     * @return the squares between, or {@link Bitboards#EMPTY} if the squares are
+     *         not on a common line
+     */
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    /**
+     * Finds a magic number for a square and fills in its attack table.
+     */
+    private static void initSquare(int square, int[][] directions, long[] masks, long[] magics, int[] shifts,
+            long[][] table, Random random) {
+        final long mask = relevantOccupancy(square, directions);
+        final int bits = Bitboards.count(mask);
+        final int size = 1 << bits;
+
+        // Enumerate every subset of the mask together with its attack set
+        final long[] occupancies = new long[size];
+        final long[] attacks = new long[size];
+        long subset = 0;
+        for (int i = 0; i < size; i++) {
+            occupancies[i] = subset;
+            attacks[i] = slowAttacks(square, subset, directions);
+            subset = (subset - mask) & mask;
+        }
+
+        final long[] candidateTable = new long[size];
+        final boolean[] used = new boolean[size];
+        while (true) {
+            final long magic = random.nextLong() & random.nextLong() & random.nextLong();
+            if (Bitboards.count((mask * magic) & 0xFF00000000000000L) < 6)
+                continue;
+
+            Arrays.fill(used, false);
+            boolean collision = false;
+            for (int i = 0; i < size && !collision; i++) {
+                final int index = (int) ((occupancies[i] * magic) >>> (64 - bits));
+                if (!used[index]) {
+                    used[index] = true;
+                    candidateTable[index] = attacks[i];
+                } else if (candidateTable[index] != attacks[i]) {
+                    collision = true;
+                }
+            }
+
+            if (!collision) {
+                masks[square] = mask;
+                magics[square] = magic;
+                shifts[square] = 64 - bits;
+                table[square] = candidateTable;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the squares whose occupancy matters for a slider on the given
+     * square. The last square of every ray is left out, since a piece there can't
+     * block anything further.
+     */
+    private static long relevantOccupancy(int square, int[][] directions) {
+        long mask = Bitboards.EMPTY;
+        for (final int[] direction : directions) {
+            int x = square % 8 + direction[0];
+            int y = square / 8 + direction[1];
+            while (Bitboards.square(x + direction[0], y + direction[1]) != -1) {
+                mask |= Bitboards.bit(x, y);
+                x += direction[0];
+                y += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Computes the attacks of a slider by walking each ray until it hits a piece.
+     * Only used to fill in the tables.
+     */
+    private static long slowAttacks(int square, long occupied, int[][] directions) {
+        long attacks = Bitboards.EMPTY;
+        for (final int[] direction : directions) {
+            int x = square % 8 + direction[0];
+            int y = square / 8 + direction[1];
+            while (Bitboards.square(x, y) != -1) {
+                final long bit = Bitboards.bit(x, y);
+                attacks |= bit;
+                if ((occupied & bit) != 0)
+                    break;
+                x += direction[0];
+                y += direction[1];
+            }
+        }
+        return attacks;
+    }
+}
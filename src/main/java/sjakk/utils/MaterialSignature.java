@@ -0,0 +1,137 @@
+package sjakk.utils;
+
+import sjakk.PieceType;
+
+/**
+ * A utility class for material signatures. A material signature is a
+ * {@code long} holding the number of pieces of every type and color, four bits
+ * per count. Bishops are counted separately for light and dark squares, so
+ * draws with bishops of the same square color can be seen from the signature
+ * alone. Kings are not counted. All methods in this class are static, and it is
+ * not possible to create an instance of MaterialSignature.
+ *
+ * @see sjakk.ChessBoard#getMaterialSignature()
+ */
+public abstract class MaterialSignature {
+    /**
+     * The signature of a board with only kings.
+     */
+    public static final long EMPTY = 0L;
+
+    private static final int FIELD_BITS = 4;
+    private static final long FIELD_MASK = 0xF;
+
+    // The fields of one color, in order. The black fields follow the white ones.
+    private static final int PAWNS = 0;
+    private static final int KNIGHTS = 1;
+    private static final int LIGHT_BISHOPS = 2;
+    private static final int DARK_BISHOPS = 3;
+    private static final int ROOKS = 4;
+    private static final int QUEENS = 5;
+    private static final int FIELDS_PER_COLOR = 6;
+
+    /**
+     * The fields that make mate possible on their own.
+     */
+    private static final long MATING_MATERIAL = fieldMask(PAWNS) | fieldMask(ROOKS) | fieldMask(QUEENS);
+
+    /**
+     * Returns the amount to add to a signature for a piece on a square.
+     *
+     * @param white  whether the piece is white
+     * @param type   the type of the piece
+     * @param square the square index of the piece
+     * @return the amount, or 0 for kings
+     */
+    public static long of(boolean white, PieceType type, int square) {
+        final int field;
+        switch (type) {
+            case PAWN:
+                field = PAWNS;
+                break;
+            case KNIGHT:
+                field = KNIGHTS;
+                break;
+            case BISHOP:
+                field = isLightSquare(square) ? LIGHT_BISHOPS : DARK_BISHOPS;
+                break;
+            case ROOK:
+                field = ROOKS;
+                break;
+            case QUEEN:
+                field = QUEENS;
+                break;
+            default:
+                return 0;
+        }
+        return 1L << shift(white, field);
+    }
+
+    /**
+     * Returns the number of pieces of a type and color in the signature.
+     *
+     * @param signature the material signature
+     * @param type      the type of the pieces
+     * @param white     whether to count white or black pieces
+     * @return the number of pieces, always 0 for kings
+     */
+    public static int count(long signature, PieceType type, boolean white) {
+        switch (type) {
+            case PAWN:
+                return field(signature, white, PAWNS);
+            case KNIGHT:
+                return field(signature, white, KNIGHTS);
+            case BISHOP:
+                return field(signature, white, LIGHT_BISHOPS) + field(signature, white, DARK_BISHOPS);
+            case ROOK:
+                return field(signature, white, ROOKS);
+            case QUEEN:
+                return field(signature, white, QUEENS);
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Returns whether neither side can ever give mate with the material in the
+     * signature. This is the case for king against king, king and a single minor
+     * piece against king, and when the only other pieces are bishops that all
+     * stand on squares of the same color.
+     *
+     * @param signature the material signature
+     * @return {@code true} if the material is insufficient for mate
+     */
+    public static boolean isInsufficient(long signature) {
+        if ((signature & MATING_MATERIAL) != 0)
+            return false;
+
+        final int knights = field(signature, true, KNIGHTS) + field(signature, false, KNIGHTS);
+        final int light = field(signature, true, LIGHT_BISHOPS) + field(signature, false, LIGHT_BISHOPS);
+        final int dark = field(signature, true, DARK_BISHOPS) + field(signature, false, DARK_BISHOPS);
+        if (knights + light + dark <= 1)
+            return true;
+        return knights == 0 && (light == 0 || dark == 0);
+    }
+
+    /**
+     * Returns whether a square is a light square. a1 is a dark square.
+     *
+     * @param square the square index
+     * @return {@code true} if the square is light
+     */
+    public static boolean isLightSquare(int square) {
+        return ((square % 8 + square / 8) & 1) == 1;
+    }
+
+    private static int shift(boolean white, int field) {
+        return ((white ? 0 : FIELDS_PER_COLOR) + field) * FIELD_BITS;
+    }
+
+    private static int field(long signature, boolean white, int field) {
+        return (int) ((signature >>> shift(white, field)) & FIELD_MASK);
+    }
+
+    private static long fieldMask(int field) {
+        return (FIELD_MASK << shift(true, field)) | (FIELD_MASK << shift(false, field));
+    }
+}
@@ -0,0 +1,83 @@
+package sjakk.utils;
+
+import sjakk.PieceType;
+
+/**
+ * A utility class for piece codes. A piece code is a {@code byte} holding the
+ * type and color of a piece, so a whole board fits in a {@code byte[64]}
+ * mailbox. The lowest three bits are the ordinal of the type plus one, and the
+ * fourth bit is set for black pieces. The code of an empty square is
+ * {@link #EMPTY}. All methods in this class are static, and it is not possible
+ * to create an instance of PieceCode.
+ *
+ * @see sjakk.ChessBoard#getPieceCode(int)
+ */
+public abstract class PieceCode {
+    /**
+     * The code of an empty square.
+     */
+    public static final byte EMPTY = 0;
+
+    private static final int TYPE_MASK = 0x7;
+    private static final int BLACK = 0x8;
+    private static final PieceType[] TYPES = PieceType.values();
+
+    /**
+     * Returns the code of a piece.
+     *
+     * @param white whether the piece is white
+     * @param type  the type of the piece
+     * @return the code of the piece
+     */
+    public static byte of(boolean white, PieceType type) {
+        return (byte) ((type.ordinal() + 1) | (white ? 0 : BLACK));
+    }
+
+    /**
+     * Returns the type of the piece of a code.
+     *
+     * @param code the code of the piece
+     * @return the type of the piece, or null for {@link #EMPTY}
+     */
+    public static PieceType getType(byte code) {
+        if (code == EMPTY)
+            return null;
+        return TYPES[(code & TYPE_MASK) - 1];
+    }
+
+    /**
+     * Returns whether the piece of a code is white.
+     *
+     * @param code the code of the piece
+     * @return {@code true} if the piece is white, {@code false} if it is black or
+     *         the code is {@link #EMPTY}
+     */
+    public static boolean isWhite(byte code) {
+        return code != EMPTY && (code & BLACK) == 0;
+    }
+
+    /**
+     * Returns whether a code is a piece of a type.
+     *
+     * @param code the code to check
+     * @param type the type of the piece
+     * @return {@code true} if the code is a piece of the type, of either color
+     */
+    public static boolean is(byte code, PieceType type) {
+        return (code & TYPE_MASK) == type.ordinal() + 1;
+    }
+
+    /**
+     * Returns the character of a code, as used in FEN strings. Uppercase is white,
+     * lowercase is black.
+     *
+     * @param code the code of the piece
+     * @return the character of the piece, or {@code ' '} for {@link #EMPTY}
+     */
+    public static char toChar(byte code) {
+        final PieceType type = getType(code);
+        if (type == null)
+            return ' ';
+        return isWhite(code) ? Character.toUpperCase(type.getSymbol()) : type.getSymbol();
+    }
+}
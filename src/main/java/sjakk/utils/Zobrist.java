@@ -0,0 +1,132 @@
+package sjakk.utils;
+
+import java.util.Random;
+
+import sjakk.ChessBoard;
+import sjakk.PieceType;
+import sjakk.Position;
+import sjakk.pieces.Piece;
+
+/**
+ * The random keys of Zobrist hashing. The key of a position is the XOR of one
+ * key for every piece on its square, one key if black is to move, one key for
+ * the castling rights and one key for the file of a possible en passant
+ * capture. Since XOR is its own inverse, the key can be updated incrementally
+ * when a piece moves. All methods in this class are static, and it is not
+ * possible to create an instance of Zobrist.
+ *
+ * @see ChessBoard#getZobristKey()
+ */
+public abstract class Zobrist {
+    /**
+     * The keys of the pieces, indexed by color index, piece type and square.
+     */
+    private static final long[][][] PIECES = new long[2][PieceType.values().length][64];
+
+    /**
+     * The key of black being the player to move.
+     */
+    public static final long BLACK_TO_MOVE;
+
+    /**
+     * The keys of the castling rights, indexed by the four castling bits (white
+     * king side, white queen side, black king side and black queen side from the
+     * lowest bit).
+     */
+    private static final long[] CASTLING = new long[16];
+
+    /**
+     * The keys of the en passant files.
+     */
+    private static final long[] EN_PASSANT_FILES = new long[8];
+
+    static {
+        // A fixed seed gives the same keys every run, so keys can be compared across
+        // runs
+        final Random random = new Random(0x2B992DDFA23249D6L);
+        for (final long[][] color : PIECES) {
+            for (final long[] type : color) {
+                for (int square = 0; square < 64; square++) {
+                    type[square] = random.nextLong();
+                }
+            }
+        }
+        BLACK_TO_MOVE = random.nextLong();
+
+        final long[] rights = new long[4];
+        for (int i = 0; i < rights.length; i++) {
+            rights[i] = random.nextLong();
+        }
+        for (int bits = 0; bits < CASTLING.length; bits++) {
+            for (int i = 0; i < rights.length; i++) {
+                if ((bits & (1 << i)) != 0)
+                    CASTLING[bits] ^= rights[i];
+            }
+        }
+
+        for (int file = 0; file < EN_PASSANT_FILES.length; file++) {
+            EN_PASSANT_FILES[file] = random.nextLong();
+        }
+    }
+
+    /**
+     * Returns the key of a piece on a square.
+     *
+     * @param white  whether the piece is white
+     * @param type   the type of the piece
+     * @param square the square index
+     * @return the key
+     */
+    public static long piece(boolean white, PieceType type, int square) {
+        return PIECES[Bitboards.colorIndex(white)][type.ordinal()][square];
+    }
+
+    /**
+     * Returns the key of a set of castling rights.
+     *
+     * @param bits the castling rights as four bits, white king side, white queen
+     *             side, black king side and black queen side from the lowest bit
+     * @return the key
+     */
+    public static long castling(int bits) {
+        return CASTLING[bits];
+    }
+
+    /**
+     * Returns the key of an en passant capture on a file.
+     *
+     * @param file the file (x coordinate) of the en passant target
+     * @return the key
+     */
+    public static long enPassant(int file) {
+        return EN_PASSANT_FILES[file];
+    }
+
+    /**
+     * Computes the key of a position from scratch. This is slow compared to
+     * {@link ChessBoard#getZobristKey()}, and is meant for checking it.
+     *
+     * @param board the board
+     * @return the key of the position
+     */
+    public static long compute(ChessBoard board) {
+        long key = 0;
+        for (final Piece piece : board) {
+            key ^= piece(piece.isWhite(), piece.getType(), piece.getSquare());
+        }
+        if (!board.getPlayerTurn().isWhite())
+            key ^= BLACK_TO_MOVE;
+
+        final String rights = board.getCastlingRights();
+        final int bits = (rights.contains("K") ? 1 : 0) | (rights.contains("Q") ? 2 : 0)
+                | (rights.contains("k") ? 4 : 0) | (rights.contains("q") ? 8 : 0);
+        key ^= castling(bits);
+
+        final Position target = board.getEnPassantTarget();
+        final boolean white = board.getPlayerTurn().isWhite();
+        if (target != null && (Bitboards.PAWN_ATTACKS[Bitboards.colorIndex(!white)][Bitboards.square(target)]
+                & board.getBitboard(PieceType.PAWN, white)) != 0)
+            key ^= enPassant(target.getX());
+        return key;
+    }
+}
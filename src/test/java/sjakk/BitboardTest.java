@@ -0,0 +1,129 @@
+package sjakk;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import sjakk.pieces.Pawn;
+import sjakk.pieces.Piece;
+import sjakk.pieces.Queen;
+import sjakk.utils.Bitboards;
+import sjakk.utils.FENParser;
+
+public class BitboardTest {
+    private ChessBoard board;
+
+    /**
+     * Checks that the bitboards of the board match the pieces on it.
+     */
+    private void checkBitboardsMatchPieces() {
+        long occupied = 0;
+        for (int square = 0; square < 64; square++) {
+            final Piece piece = board.getPosition(Bitboards.toPosition(square));
+            for (final PieceType type : PieceType.values()) {
+                for (final boolean white : new boolean[] { true, false }) {
+                    final boolean expected = piece != null && piece.getType() == type && piece.isWhite() == white;
+                    assertEquals(expected, Bitboards.isSet(board.getBitboard(type, white), square),
+                            "Bitboard for " + type + " does not match the board at " + Bitboards.toPosition(square));
+                }
+            }
+            if (piece != null) {
+                occupied |= Bitboards.bit(square);
+            }
+        }
+        assertEquals(occupied, board.getOccupancy(), "Occupancy does not match the board.");
+        assertEquals(occupied, board.getOccupancy(true) | board.getOccupancy(false),
+                "Color occupancies do not add up to the occupancy.");
+    }
+
+    @Test
+    public void testDefaultStart() {
+        board = FENParser.getBoardFromDefaultFEN();
+        checkBitboardsMatchPieces();
+
+        assertEquals(0x000000000000FF00L, board.getBitboard(PieceType.PAWN, true));
+        assertEquals(0x00FF000000000000L, board.getBitboard(PieceType.PAWN, false));
+        assertEquals(0xFFFF00000000FFFFL, board.getOccupancy());
+    }
+
+    @Test
+    public void testMoves() {
+        board = FENParser.getBoardFromDefaultFEN();
+        board.getPosition(new Position("e2")).move(new Position("e4"));
+        board.getPosition(new Position("d7")).move(new Position("d5"));
+        board.getPosition(new Position("e4")).move(new Position("d5"));
+        checkBitboardsMatchPieces();
+        assertEquals(Bitboards.bit(new Position("d5")), board.getOccupancy(true) & Bitboards.bit(new Position("d5")));
+    }
+
+    @Test
+    public void testEnPassantAndPromotion() {
+        assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN("7k/4p3/8/3P4/8/8/8/7K b - - 0 1"));
+        board.getPosition(new Position("e7")).move(new Position("e5"));
+        board.getPosition(new Position("d5")).move(new Position("e6"));
+        checkBitboardsMatchPieces();
+        assertEquals(0, board.getBitboard(PieceType.PAWN, false));
+
+        assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN("8/p7/P7/6p1/4p2p/2pk4/5p2/3K4 w - - 0 44"));
+        board.getPosition(new Position("d1")).move(new Position("c1"));
+        board.getPosition(new Position("f2")).move(new Position("f1"));
+        final Pawn pawn = board.getUpgradablePawn();
+        board.promotePawn(pawn, new Queen(pawn.getPos(), board, pawn.getOwner()));
+        checkBitboardsMatchPieces();
+        assertEquals(Bitboards.bit(new Position("f1")), board.getBitboard(PieceType.QUEEN, false));
+    }
+
+    @Test
+    public void testKingSquareAndAttacks() {
+        assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN("r3k3/8/8/8/8/8/8/4K2R w K - 0 1"));
+        assertEquals(Bitboards.square(new Position("e1")), board.getKingSquare(true));
+        assertEquals(Bitboards.square(new Position("e8")), board.getKingSquare(false));
+
+        board.getPosition(new Position("e1")).move(new Position("g1"));
+        assertEquals(Bitboards.square(new Position("g1")), board.getKingSquare(true), "King square after castling.");
+
+        assertTrue(board.isAttacked(Bitboards.square(new Position("a1")), false), "The rook on a8 attacks a1.");
+        assertFalse(board.isAttacked(Bitboards.square(new Position("b1")), false), "Nothing attacks b1.");
+        assertTrue(board.isAttacked(Bitboards.square(new Position("f8")), true), "The rook on f1 attacks f8.");
+    }
+
+    @Test
+    public void testAttackMaps() {
+        assertDoesNotThrow(() -> board = FENParser
+                .getBoardFromFEN("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"));
+        board.getPosition(new Position("e2")).move(new Position("a6"));
+        board.getPosition(new Position("b4")).move(new Position("c3"));
+
+        for (final boolean white : new boolean[] { true, false }) {
+            final long blockers = board.getOccupancy() & ~board.getBitboard(PieceType.KING, !white);
+            for (int square = 0; square < 64; square++) {
+                assertEquals(board.isAttacked(square, white, blockers),
+                        Bitboards.isSet(board.getAttackMap(white), square),
+                        "Attack map is wrong at " + Bitboards.toPosition(square));
+            }
+        }
+    }
+
+    @Test
+    public void testSharedPositions() {
+        for (int square = 0; square < 64; square++) {
+            final Position position = Position.of(square);
+            assertEquals(square, Bitboards.square(position));
+            assertSame(position, Position.of(position.getX(), position.getY()));
+            assertSame(position, Bitboards.toPosition(square));
+        }
+        assertSame(Position.of(4, 3), Position.of(4, 2).add(Position.of(0, 1)));
+        assertFalse(Position.of(8, 0).insideBoard(), "Positions outside the board can still be made.");
+
+        board = FENParser.getBoardFromDefaultFEN();
+        final Piece king = board.getPosition(Bitboards.square(new Position("e1")));
+        assertEquals(king, board.getPosition(new Position("e1")));
+        board.setPosition(Bitboards.square(new Position("e1")), null);
+        assertEquals(-1, board.getKingSquare(true), "Setting a square by index updates the board.");
+        checkBitboardsMatchPieces();
+    }
+}
@@ -9,6 +9,7 @@ import org.junit.jupiter.api.Test;
 
 import sjakk.pieces.Pawn;
 import sjakk.pieces.Queen;
+import sjakk.utils.Bitboards;
 import sjakk.utils.FENParser;
 
 public class ChessBoardMoveTest {
@@ -30,6 +31,20 @@ public class ChessBoardMoveTest {
                                 "Game position is not correct after move.");
         }
 
+        @Test
+        public void testPlayTrustedMove() {
+                board = FENParser.getBoardFromDefaultFEN();
+
+                // Fool's mate, replayed without validating the moves
+                for (final String move : new String[] { "f2f3", "e7e5", "g2g4", "d8h4" }) {
+                        board.playTrustedMove(Move.of(Bitboards.square(new Position(move.substring(0, 2))),
+                                        Bitboards.square(new Position(move.substring(2, 4)))));
+                }
+                assertEquals("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3", board.getFEN());
+                assertTrue(board.getGameFinished(), "The game is checked for being finished.");
+                assertEquals(4, board.getUndoableMoves());
+        }
+
         @Test
         public void testCastlingMove() {
                 assertDoesNotThrow(
@@ -81,4 +96,49 @@ public class ChessBoardMoveTest {
                 // Game ends in checkmate
                 assertTrue(board.getGameFinished(), "Game is finished with checkmate after promotion.");
         }
+
+        @Test
+        public void testThreefoldRepetition() {
+                board = FENParser.getBoardFromDefaultFEN();
+
+                for (int i = 0; i < 2; i++) {
+                        assertFalse(board.getGameFinished(), "Game is not finished before the third repetition.");
+                        board.getPosition(new Position("g1")).move(new Position("f3"));
+                        board.getPosition(new Position("g8")).move(new Position("f6"));
+                        board.getPosition(new Position("f3")).move(new Position("g1"));
+                        board.getPosition(new Position("f6")).move(new Position("g8"));
+                }
+
+                assertEquals(2, board.countRepetitions(), "The start position has been on the board twice before.");
+                assertTrue(board.getGameFinished(), "Game is a draw by threefold repetition.");
+
+                board.unmakeMove();
+                assertFalse(board.getGameFinished(), "Taking back the move takes back the draw.");
+                assertFalse(board.isThreefoldRepetition());
+        }
+
+        @Test
+        public void testNoRepetitionAcrossPawnMove() {
+                board = FENParser.getBoardFromDefaultFEN();
+                board.getPosition(new Position("g1")).move(new Position("f3"));
+                board.getPosition(new Position("g8")).move(new Position("f6"));
+                board.getPosition(new Position("f3")).move(new Position("g1"));
+                board.getPosition(new Position("e7")).move(new Position("e6"));
+                board.getPosition(new Position("g1")).move(new Position("f3"));
+                board.getPosition(new Position("f6")).move(new Position("g8"));
+
+                assertEquals(0, board.countRepetitions(), "Positions before a pawn move are not searched.");
+        }
+
+        @Test
+        public void testStalemate() {
+                assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN("7k/8/5Q2/6K1/8/8/8/8 w - - 0 1"),
+                                "Should not throw on this FEN-string.");
+
+                board.getPosition(new Position("f6")).move(new Position("f7"));
+                assertTrue(board.isStalemate(), "Black has no legal moves and is not in check.");
+                assertFalse(board.isCheckmate());
+                assertTrue(board.getGameFinished(), "Game is finished with stalemate.");
+                assertEquals("Black got stalemated. Draw!", board.getGameMessage());
+        }
 }
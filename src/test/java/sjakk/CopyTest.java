@@ -0,0 +1,57 @@
+package sjakk;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+
+import sjakk.engine.Perft;
+import sjakk.pieces.Piece;
+import sjakk.utils.FENParser;
+
+public class CopyTest {
+    private ChessBoard board;
+
+    @Test
+    public void testCopyIsIndependent() {
+        assertDoesNotThrow(() -> board = FENParser
+                .getBoardFromFEN("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"));
+        final String FENString = board.getFEN();
+        final ChessBoard copy = board.copy();
+
+        assertEquals(FENString, copy.getFEN());
+        assertEquals(board.getZobristKey(), copy.getZobristKey());
+        assertEquals(board.getMaterialSignature(), copy.getMaterialSignature());
+        for (final Piece piece : copy) {
+            assertNotEquals(board.getPosition(piece.getPos()), piece, "Pieces should be views of the copy.");
+            assertEquals(piece, copy.getPosition(piece.getPos()));
+        }
+
+        copy.getPosition(new Position("e1")).move(new Position("g1"));
+        assertEquals(FENString, board.getFEN(), "Moving on the copy should not change the original.");
+        assertNotEquals(FENString, copy.getFEN());
+        assertEquals(2039, Perft.perft(board, 2), "The original still has all its moves.");
+    }
+
+    @Test
+    public void testCopyKeepsHistory() {
+        board = FENParser.getBoardFromDefaultFEN();
+        board.getPosition(new Position("e2")).move(new Position("e4"));
+        board.getPosition(new Position("e7")).move(new Position("e5"));
+        final Piece lastMoved = board.getLastPieceMoved();
+
+        final ChessBoard copy = board.copy();
+        assertEquals(board.getMoves(), copy.getMoves());
+        assertEquals(lastMoved.getPos(), copy.getLastPieceMoved().getPos());
+        assertNotEquals(lastMoved, copy.getLastPieceMoved());
+        assertEquals(copy.getPosition(new Position("e5")), copy.getLastPieceMoved());
+        assertEquals(1, copy.getPosition(new Position("e4")).getMoveCount());
+
+        copy.unmakeMove();
+        copy.unmakeMove();
+        assertEquals(FENParser.DEFAULT_STRING, copy.getFEN(), "Moves before the copy can be taken back.");
+        assertEquals(0, copy.getPosition(new Position("e2")).getMoveCount());
+        assertEquals(2, board.getUndoableMoves(), "The original keeps its moves.");
+    }
+}
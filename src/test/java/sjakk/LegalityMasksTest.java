@@ -0,0 +1,55 @@
+package sjakk;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import sjakk.utils.Bitboards;
+import sjakk.utils.FENParser;
+
+public class LegalityMasksTest {
+    private ChessBoard board;
+
+    @Test
+    public void testPinnedPiece() {
+        assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN("4r2k/8/8/8/8/8/4N3/4K3 w - - 0 1"),
+                "Should not throw on legal FEN-string.");
+        final String FENString = board.getFEN();
+        final LegalityMasks masks = board.getLegalityMasks(true);
+
+        assertFalse(masks.inCheck(), "White is not in check.");
+        assertEquals(Bitboards.bit(new Position("e2")), masks.getPinned(), "The knight is pinned.");
+        assertTrue(board.getPosition(new Position("e2")).getLegalMoves().isEmpty(),
+                "A pinned knight can't move.");
+        assertEquals(FENString, board.getFEN(), "Checking legality should not modify the board.");
+    }
+
+    @Test
+    public void testCheckMask() {
+        assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN("4r2k/8/8/8/8/8/8/R3K3 w - - 0 1"),
+                "Should not throw on legal FEN-string.");
+        final LegalityMasks masks = board.getLegalityMasks(true);
+
+        assertTrue(masks.inCheck(), "White is in check from the rook.");
+        long expected = 0;
+        for (int y = 1; y < 8; y++) {
+            expected |= Bitboards.bit(4, y);
+        }
+        assertEquals(expected, masks.getCheckMask(), "Should block or capture the rook.");
+
+        assertTrue(board.getPosition(new Position("a1")).getLegalMoves().isEmpty(),
+                "The rook can't reach a square that blocks or captures the checking rook.");
+    }
+
+    @Test
+    public void testEnPassantDiscoveredCheck() {
+        assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN("8/8/8/KPp4r/8/8/8/7k w - c6 0 1"),
+                "Should not throw on legal FEN-string.");
+
+        assertFalse(board.getPosition(new Position("b5")).getLegalMoves().contains(new Position("c6")),
+                "En passant would leave the king in check along the rank.");
+    }
+}
@@ -0,0 +1,50 @@
+package sjakk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import sjakk.utils.Bitboards;
+import sjakk.utils.MagicBitboards;
+
+public class MagicBitboardsTest {
+    private static final int[][] ROOK_DIRECTIONS = { { 0, 1 }, { 0, -1 }, { 1, 0 }, { -1, 0 } };
+    private static final int[][] BISHOP_DIRECTIONS = { { 1, 1 }, { 1, -1 }, { -1, 1 }, { -1, -1 } };
+
+    /**
+     * Walks every ray from the square until it hits a piece.
+     */
+    private static long walkRays(int square, long occupied, int[][] directions) {
+        long attacks = 0;
+        for (final int[] direction : directions) {
+            int x = square % 8 + direction[0];
+            int y = square / 8 + direction[1];
+            while (x >= 0 && x < 8 && y >= 0 && y < 8) {
+                attacks |= Bitboards.bit(x, y);
+                if (Bitboards.isSet(occupied, Bitboards.square(x, y)))
+                    break;
+                x += direction[0];
+                y += direction[1];
+            }
+        }
+        return attacks;
+    }
+
+    @Test
+    public void testAttacksMatchRayWalking() {
+        final Random random = new Random(4100);
+        for (int i = 0; i < 1000; i++) {
+            final long occupied = random.nextLong() & random.nextLong();
+            for (int square = 0; square < 64; square++) {
+                final long rook = walkRays(square, occupied, ROOK_DIRECTIONS);
+                final long bishop = walkRays(square, occupied, BISHOP_DIRECTIONS);
+                assertEquals(rook, MagicBitboards.rookAttacks(square, occupied), "Rook attacks are wrong.");
+                assertEquals(bishop, MagicBitboards.bishopAttacks(square, occupied), "Bishop attacks are wrong.");
+                assertEquals(rook | bishop, MagicBitboards.queenAttacks(square, occupied),
+                        "Queen attacks are wrong.");
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package sjakk;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import sjakk.pieces.Pawn;
+import sjakk.pieces.Queen;
+import sjakk.utils.FENParser;
+
+public class MaterialSignatureTest {
+    private ChessBoard board;
+
+    private boolean insufficient(String FENString) {
+        assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN(FENString));
+        return board.hasInsufficientMaterial();
+    }
+
+    @Test
+    public void testPieceCounts() {
+        board = FENParser.getBoardFromDefaultFEN();
+        for (final boolean white : new boolean[] { true, false }) {
+            assertEquals(8, board.getPieceCount(PieceType.PAWN, white));
+            assertEquals(2, board.getPieceCount(PieceType.KNIGHT, white));
+            assertEquals(2, board.getPieceCount(PieceType.BISHOP, white));
+            assertEquals(2, board.getPieceCount(PieceType.ROOK, white));
+            assertEquals(1, board.getPieceCount(PieceType.QUEEN, white));
+            assertEquals(1, board.getPieceCount(PieceType.KING, white));
+        }
+
+        board.getPosition(new Position("e2")).move(new Position("e4"));
+        board.getPosition(new Position("d7")).move(new Position("d5"));
+        board.getPosition(new Position("e4")).move(new Position("d5"));
+        assertEquals(8, board.getPieceCount(PieceType.PAWN, true));
+        assertEquals(7, board.getPieceCount(PieceType.PAWN, false), "A black pawn was captured.");
+        board.unmakeMove();
+        assertEquals(8, board.getPieceCount(PieceType.PAWN, false), "The capture was taken back.");
+    }
+
+    @Test
+    public void testPromotion() {
+        assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN("8/p7/P7/6p1/4p2p/2pk4/5p2/3K4 w - - 0 44"));
+        board.getPosition(new Position("d1")).move(new Position("c1"));
+        board.getPosition(new Position("f2")).move(new Position("f1"));
+        final Pawn pawn = board.getUpgradablePawn();
+        board.promotePawn(pawn, new Queen(pawn.getPos(), board, pawn.getOwner()));
+
+        assertEquals(1, board.getPieceCount(PieceType.QUEEN, false));
+        assertEquals(5, board.getPieceCount(PieceType.PAWN, false));
+    }
+
+    @Test
+    public void testInsufficientMaterial() {
+        assertTrue(insufficient("8/8/4k3/8/8/3K4/8/8 w - - 0 1"), "King against king.");
+        assertTrue(insufficient("8/8/4k3/8/8/3KB3/8/8 w - - 0 1"), "King and bishop against king.");
+        assertTrue(insufficient("8/8/4k3/8/8/3K4/8/6n1 w - - 0 1"), "King against king and knight.");
+        assertTrue(insufficient("8/2b5/4k3/8/8/3KB3/8/8 w - - 0 1"), "Bishops on the same square color.");
+
+        assertFalse(insufficient("8/3b4/4k3/8/8/3KB3/8/8 w - - 0 1"), "Bishops on different square colors.");
+        assertFalse(insufficient("8/8/4k3/8/8/3K4/8/5Nn1 w - - 0 1"), "A knight each.");
+        assertFalse(insufficient("8/8/4k3/8/8/3KP3/8/8 w - - 0 1"), "A pawn can promote.");
+        assertFalse(insufficient("8/8/4k3/8/8/3KR3/8/8 w - - 0 1"), "A rook can mate.");
+    }
+
+    @Test
+    public void testGameFinishedOnInsufficientMaterial() {
+        assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN("8/8/4k3/8/3p4/3K4/8/8 w - - 0 1"));
+        assertFalse(board.getGameFinished());
+
+        board.getPosition(new Position("d3")).move(new Position("d4"));
+        assertTrue(board.getGameFinished(), "King against king is a draw.");
+    }
+}
@@ -0,0 +1,243 @@
+package sjakk;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import sjakk.pieces.Pawn;
+import sjakk.pieces.Piece;
+import sjakk.utils.Bitboards;
+import sjakk.utils.FENParser;
+import sjakk.utils.PieceCode;
+
+public class MoveGeneratorTest {
+    private static final String[] positions = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+            "8/8/8/KPp4r/8/8/8/7k w - c6 0 1",
+    };
+
+    private ChessBoard board;
+
+    /**
+     * Gets the legal moves of the player whos turn it is from the pieces.
+     */
+    private Set<String> movesFromPieces() {
+        final Set<String> moves = new HashSet<String>();
+        for (final Piece piece : board) {
+            if (piece.getOwner() != board.getPlayerTurn())
+                continue;
+            for (final Position to : piece.getLegalMoves()) {
+                final String move = piece.getPos().toString() + to;
+                if (piece instanceof Pawn && (to.getY() == 0 || to.getY() == 7)) {
+                    for (final char promotion : new char[] { 'q', 'r', 'b', 'n' }) {
+                        moves.add(move + promotion);
+                    }
+                } else {
+                    moves.add(move);
+                }
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Gets the legal moves of the player whos turn it is from the generator.
+     */
+    private Set<String> movesFromGenerator(MoveList list) {
+        board.generateLegalMoves(list);
+        final Set<String> moves = new HashSet<String>();
+        for (int i = 0; i < list.size(); i++) {
+            moves.add(Move.toString(list.get(i)));
+        }
+        assertEquals(list.size(), moves.size(), "The generator should not give the same move twice.");
+        return moves;
+    }
+
+    @Test
+    public void testSameMovesAsPieces() {
+        final MoveList rootMoves = new MoveList();
+        final MoveList moves = new MoveList();
+        for (final String FENString : positions) {
+            assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN(FENString));
+            assertEquals(movesFromPieces(), movesFromGenerator(rootMoves), "Wrong moves in " + FENString);
+
+            for (int i = 0; i < rootMoves.size(); i++) {
+                board.makeMove(rootMoves.get(i));
+                assertEquals(movesFromPieces(), movesFromGenerator(moves),
+                        "Wrong moves after " + Move.toString(rootMoves.get(i)) + " in " + FENString);
+                assertEquals(!moves.isEmpty(), MoveGenerator.hasLegalMove(board),
+                        "Wrong answer for having a legal move after " + Move.toString(rootMoves.get(i)));
+                board.unmakeMove();
+            }
+        }
+    }
+
+    @Test
+    public void testLegalTargetsDoNotChangeBoard() {
+        for (final String FENString : positions) {
+            assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN(FENString));
+            final long key = board.getZobristKey();
+
+            // Both colors, not only the player whos turn it is
+            for (final Piece piece : board) {
+                long expected = Bitboards.EMPTY;
+                for (final Position to : piece.getLegalMoves()) {
+                    expected |= Bitboards.bit(to);
+                }
+                assertEquals(expected, board.getLegalTargets(piece.getSquare()),
+                        "Wrong targets for " + piece.getPos() + " in " + FENString);
+                assertEquals(piece, board.getPosition(piece.getPos()));
+            }
+            assertEquals(FENString, board.getFEN(), "Asking for legal moves should not change the board.");
+            assertEquals(key, board.getZobristKey());
+            assertEquals(Bitboards.EMPTY, board.getLegalTargets(Bitboards.square(new Position("e3"))));
+        }
+    }
+
+    @Test
+    public void testIsLegal() {
+        final MoveList list = new MoveList();
+        for (final String FENString : positions) {
+            assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN(FENString));
+            final Set<String> moves = movesFromGenerator(list);
+
+            for (int from = 0; from < 64; from++) {
+                for (int to = 0; to < 64; to++) {
+                    final String move = Move.toString(Move.of(from, to));
+                    final Position fromPosition = Bitboards.toPosition(from);
+                    final Position toPosition = Bitboards.toPosition(to);
+                    assertEquals(moves.contains(move) || moves.contains(move + 'q'),
+                            board.isLegal(fromPosition, toPosition, null), move + " in " + FENString);
+                    // The flag has to match the move, not only the squares
+                    for (final int flag : new int[] { Move.NORMAL, Move.EN_PASSANT, Move.CASTLE }) {
+                        assertEquals(list.contains(Move.of(from, to, flag)), board.isLegal(Move.of(from, to, flag)),
+                                move + " with flag " + flag + " in " + FENString);
+                    }
+                    assertEquals(moves.contains(move + 'n'), board.isLegal(Move.promotion(from, to, PieceType.KNIGHT)),
+                            move + "n in " + FENString);
+                }
+            }
+        }
+
+        board = FENParser.getBoardFromDefaultFEN();
+        assertFalse(board.isLegal(new Position("e2"), new Position("e4"), PieceType.QUEEN),
+                "Only pawns on the last rank can promote.");
+        assertFalse(board.isLegal(new Position("e7"), new Position("e5"), null), "It is not black's turn.");
+        assertFalse(board.isLegal(new Position("e2"), new Position(4, 8), null));
+    }
+
+    @Test
+    public void testGenerateCaptures() {
+        final MoveList rootMoves = new MoveList();
+        final MoveList captures = new MoveList();
+        for (final String FENString : positions) {
+            assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN(FENString));
+            board.generateLegalMoves(rootMoves);
+            assertEquals(capturesOf(rootMoves), movesFrom(captures), "Wrong captures in " + FENString);
+            final MoveList quiets = new MoveList();
+            board.generateLegalQuietMoves(quiets);
+            assertEquals(rootMoves.size(), captures.size() + quiets.size(), "Every other move is quiet.");
+            for (int i = 0; i < quiets.size(); i++) {
+                assertTrue(rootMoves.contains(quiets.get(i)));
+            }
+
+            for (int i = 0; i < rootMoves.size(); i++) {
+                final MoveList moves = new MoveList();
+                board.makeMove(rootMoves.get(i));
+                board.generateLegalMoves(moves);
+                assertEquals(capturesOf(moves), movesFrom(captures),
+                        "Wrong captures after " + Move.toString(rootMoves.get(i)) + " in " + FENString);
+                board.unmakeMove();
+            }
+        }
+    }
+
+    /**
+     * Gets the captures, promotions and en passant moves of a list of legal moves.
+     */
+    private Set<String> capturesOf(MoveList list) {
+        final Set<String> moves = new HashSet<String>();
+        for (int i = 0; i < list.size(); i++) {
+            final int move = list.get(i);
+            if (!Move.isCastle(move) && (Move.isPromotion(move) || Move.isEnPassant(move)
+                    || board.getPieceCode(Move.getTo(move)) != PieceCode.EMPTY))
+                moves.add(Move.toString(move));
+        }
+        return moves;
+    }
+
+    /**
+     * Gets the moves of the captures generator.
+     */
+    private Set<String> movesFrom(MoveList list) {
+        board.generateLegalCaptures(list);
+        final Set<String> moves = new HashSet<String>();
+        for (int i = 0; i < list.size(); i++) {
+            moves.add(Move.toString(list.get(i)));
+        }
+        assertEquals(list.size(), moves.size(), "The generator should not give the same move twice.");
+        return moves;
+    }
+
+    @Test
+    public void testHasLegalMove() {
+        assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1"));
+        assertFalse(MoveGenerator.hasLegalMove(board), "Black is stalemated.");
+
+        assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN("7k/6Q1/6K1/8/8/8/8/8 b - - 0 1"));
+        assertFalse(MoveGenerator.hasLegalMove(board), "Black is checkmated.");
+
+        assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN("7k/5Q2/6K1/8/8/8/p7/8 b - - 0 1"));
+        assertTrue(MoveGenerator.hasLegalMove(board), "The black pawn can move.");
+
+        assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN("8/8/8/8/k2Pp2Q/8/8/3K4 b - d3 0 1"));
+        assertTrue(MoveGenerator.hasLegalMove(board), "The king can move.");
+    }
+
+    @Test
+    public void testMoveEncoding() {
+        final int e2 = Bitboards.square(new Position("e2"));
+        final int e4 = Bitboards.square(new Position("e4"));
+        final int move = Move.of(e2, e4);
+        assertEquals(e2, Move.getFrom(move));
+        assertEquals(e4, Move.getTo(move));
+        assertEquals("e2e4", Move.toString(move));
+        assertEquals(Move.NORMAL, Move.getFlag(move));
+
+        final int promotion = Move.promotion(Bitboards.square(new Position("a7")),
+                Bitboards.square(new Position("b8")), PieceType.KNIGHT);
+        assertTrue(Move.isPromotion(promotion));
+        assertEquals(PieceType.KNIGHT, Move.getPromotion(promotion));
+        assertEquals("a7b8n", Move.toString(promotion));
+        assertTrue(promotion < (1 << 16), "A move should fit in 16 bits.");
+    }
+
+    @Test
+    public void testFlags() {
+        assertDoesNotThrow(() -> board = FENParser
+                .getBoardFromFEN("r3k2r/8/8/3pP3/8/8/8/R3K2R w KQkq d6 0 1"));
+        final MoveList moves = new MoveList();
+        board.generateLegalMoves(moves);
+
+        int castles = 0;
+        int enPassants = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            if (Move.isCastle(moves.get(i)))
+                castles++;
+            if (Move.isEnPassant(moves.get(i)))
+                enPassants++;
+        }
+        assertEquals(2, castles, "White can castle to both sides.");
+        assertEquals(1, enPassants, "White can take en passant on d6.");
+    }
+}
@@ -0,0 +1,64 @@
+package sjakk;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.Map;
+import java.util.Scanner;
+
+import org.junit.jupiter.api.Test;
+
+import sjakk.engine.Perft;
+import sjakk.utils.FENParser;
+
+public class PerftTest {
+    private static final String sep = System.getProperty("file.separator");
+    private static final String directory = System.getProperty("user.dir");
+    private static final String suiteLocation = String.join(sep, directory, "src", "test", "resources", "sjakk",
+            "perft.epd");
+
+    /**
+     * The largest reference count that is checked, to keep the test suite fast.
+     */
+    private static final long MAX_NODES = 100_000;
+
+    private ChessBoard board;
+
+    @Test
+    public void testReferencePositions() throws FileNotFoundException {
+        final Scanner scanner = new Scanner(new File(suiteLocation));
+        while (scanner.hasNextLine()) {
+            final String line = scanner.nextLine().trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+
+            final String[] parts = line.split(";");
+            final String FENString = parts[0].trim();
+            assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN(FENString),
+                    "Should not throw on reference position.");
+            for (int i = 1; i < parts.length; i++) {
+                final String[] entry = parts[i].trim().split(" ");
+                final int depth = Integer.parseInt(entry[0].substring(1));
+                final long expected = Long.parseLong(entry[1]);
+                if (expected > MAX_NODES)
+                    break;
+                assertEquals(expected, Perft.perft(board, depth), "Wrong perft at depth " + depth + " for " + FENString);
+            }
+            assertEquals(FENString, board.getFEN(), "Perft should not modify the board.");
+        }
+        scanner.close();
+    }
+
+    @Test
+    public void testDivide() {
+        board = FENParser.getBoardFromDefaultFEN();
+        final Map<String, Long> divide = Perft.divide(board, 3);
+
+        assertEquals(20, divide.size(), "There are 20 moves in the start position.");
+        assertEquals(600L, divide.get("e2e4"), "Wrong count after e2e4.");
+        assertEquals(8902L, divide.values().stream().mapToLong(Long::longValue).sum(),
+                "Divide should add up to the perft count.");
+    }
+}
@@ -0,0 +1,117 @@
+package sjakk;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import sjakk.pieces.Piece;
+import sjakk.utils.Bitboards;
+import sjakk.utils.FENParser;
+import sjakk.utils.PieceCode;
+
+public class PieceCodeTest {
+    private ChessBoard board;
+
+    /**
+     * Checks that the pieces of the board have the codes in the mailbox.
+     */
+    private void assertMailboxMatchesPieces() {
+        for (int square = 0; square < 64; square++) {
+            final Piece piece = board.getPosition(Bitboards.toPosition(square));
+            final byte code = board.getPieceCode(square);
+            if (piece == null) {
+                assertEquals(PieceCode.EMPTY, code, "Square " + square + " should be empty.");
+            } else {
+                assertEquals(PieceCode.of(piece.isWhite(), piece.getType()), code, "Wrong code on " + piece.getPos());
+            }
+        }
+    }
+
+    @Test
+    public void testCodes() {
+        for (final PieceType type : PieceType.values()) {
+            for (final boolean white : new boolean[] { true, false }) {
+                final byte code = PieceCode.of(white, type);
+                assertEquals(type, PieceCode.getType(code));
+                assertEquals(white, PieceCode.isWhite(code));
+                assertTrue(PieceCode.is(code, type));
+                assertFalse(code == PieceCode.EMPTY);
+            }
+        }
+        assertNull(PieceCode.getType(PieceCode.EMPTY));
+        assertFalse(PieceCode.isWhite(PieceCode.EMPTY));
+        assertEquals('N', PieceCode.toChar(PieceCode.of(true, PieceType.KNIGHT)));
+        assertEquals('k', PieceCode.toChar(PieceCode.of(false, PieceType.KING)));
+    }
+
+    @Test
+    public void testMailboxFollowsMoves() {
+        assertDoesNotThrow(() -> board = FENParser
+                .getBoardFromFEN("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1"));
+        assertMailboxMatchesPieces();
+
+        final MoveList moves = new MoveList();
+        board.generateLegalMoves(moves);
+        for (int i = 0; i < moves.size(); i++) {
+            board.makeMove(moves.get(i));
+            assertMailboxMatchesPieces();
+            board.unmakeMove();
+            assertMailboxMatchesPieces();
+        }
+
+        final ChessBoard copy = board.copy();
+        for (int square = 0; square < 64; square++) {
+            assertEquals(board.getPieceCode(square), copy.getPieceCode(square));
+        }
+    }
+
+    @Test
+    public void testPiecesAreViews() {
+        board = FENParser.getBoardFromDefaultFEN();
+        final Piece pawn = board.getPosition(new Position("e2"));
+        assertNotSame(pawn, board.getPosition(new Position("e2")), "A new view is made for every lookup.");
+        assertEquals(pawn, board.getPosition(new Position("e2")));
+        assertEquals(pawn.hashCode(), board.getPosition(new Position("e2")).hashCode());
+
+        final Piece stale = board.getPosition(new Position("e2"));
+        pawn.move(new Position("e4"));
+        assertTrue(stale.isWhite(), "A view keeps its color after the square is emptied.");
+        assertEquals(board.getPlayer(true), stale.getOwner());
+        assertEquals(new Position("e4"), pawn.getPos(), "The view follows the piece it moves.");
+        assertEquals(pawn, board.getPosition(new Position("e4")));
+        assertEquals(pawn, board.getLastPieceMoved());
+        assertEquals(1, pawn.getMoveCount());
+        assertNull(board.getPosition(new Position("e2")));
+    }
+
+    @Test
+    public void testMoveCountsFromHistory() {
+        assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN("r3k2r/P7/8/8/8/8/8/R3K2R w KQkq - 0 1"));
+        board.makeMove(new Position("e1"), new Position("g1"), null);
+        board.makeMove(new Position("e8"), new Position("c8"), null);
+        assertEquals(1, board.getPosition(new Position("g1")).getMoveCount());
+        assertEquals(1, board.getPosition(new Position("f1")).getMoveCount(), "The castled rook has moved.");
+        assertEquals(1, board.getPosition(new Position("d8")).getMoveCount(), "The castled rook has moved.");
+        assertEquals(0, board.getPosition(new Position("a1")).getMoveCount());
+
+        board.makeMove(new Position("f1"), new Position("f2"), null);
+        assertEquals(2, board.getPosition(new Position("f2")).getMoveCount());
+        board.makeMove(new Position("d8"), new Position("d7"), null);
+        board.makeMove(new Position("a7"), new Position("a8"), PieceType.QUEEN);
+        assertEquals(0, board.getPosition(new Position("a8")).getMoveCount(), "A promoted piece has not moved.");
+
+        board.unmakeMove();
+        board.unmakeMove();
+        board.unmakeMove();
+        assertEquals(1, board.getPosition(new Position("f1")).getMoveCount());
+        board.unmakeMove();
+        board.unmakeMove();
+        assertEquals(0, board.getPosition(new Position("h1")).getMoveCount());
+        assertEquals(0, board.getPosition(new Position("e1")).getMoveCount());
+    }
+}
@@ -0,0 +1,63 @@
+package sjakk;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+import sjakk.engine.Perft;
+import sjakk.utils.FENParser;
+
+public class PositionSnapshotTest {
+    private static final String kiwipete = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    private ChessBoard board;
+
+    @Test
+    public void testSnapshotMatchesBoard() {
+        assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN(kiwipete));
+        final PositionSnapshot snapshot = board.getSnapshot();
+
+        assertEquals(kiwipete, snapshot.getFEN());
+        assertEquals(board.getZobristKey(), snapshot.getZobristKey());
+        for (final PieceType type : PieceType.values()) {
+            assertEquals(board.getBitboard(type, true), snapshot.getBitboard(type, true));
+            assertEquals(board.getBitboard(type, false), snapshot.getBitboard(type, false));
+        }
+    }
+
+    @Test
+    public void testSnapshotDoesNotChange() {
+        board = FENParser.getBoardFromDefaultFEN();
+        final PositionSnapshot start = board.getSnapshot();
+
+        board.getPosition(new Position("e2")).move(new Position("e4"));
+        final PositionSnapshot afterMove = board.getSnapshot();
+        board.getPosition(new Position("d7")).move(new Position("d5"));
+        board.getPosition(new Position("e4")).move(new Position("d5"));
+
+        assertEquals(FENParser.DEFAULT_STRING, start.getFEN(), "Moves should not change an earlier snapshot.");
+        assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", afterMove.getFEN());
+        assertEquals(board.getFEN(), board.getSnapshot().getFEN());
+    }
+
+    @Test
+    public void testApplySnapshot() {
+        assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN(kiwipete));
+        final PositionSnapshot snapshot = board.getSnapshot();
+        board.getPosition(new Position("e1")).move(new Position("c1"));
+        board.getPosition(new Position("h3")).move(new Position("g2"));
+
+        board.applySnapshot(snapshot);
+        assertEquals(kiwipete, board.getFEN());
+        assertEquals(snapshot.getZobristKey(), board.getZobristKey());
+        assertNull(board.getLastPieceMoved());
+        assertFalse(board.getGameFinished());
+        assertEquals(97862, Perft.perft(board, 3), "The board should play like the position of the snapshot.");
+
+        final ChessBoard other = snapshot.toBoard();
+        assertEquals(kiwipete, other.getFEN());
+    }
+}
@@ -0,0 +1,282 @@
+package sjakk;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import sjakk.engine.Evaluation;
+import sjakk.engine.MovePicker;
+import sjakk.engine.ParallelSearch;
+import sjakk.engine.Search;
+import sjakk.engine.SearchResult;
+import sjakk.engine.StaticExchange;
+import sjakk.engine.TranspositionTable;
+import sjakk.utils.FENParser;
+
+public class SearchTest {
+    private ChessBoard board;
+
+    @Test
+    public void testFindsMate() {
+        assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN("6k1/5ppp/8/8/8/8/5PPP/4R1K1 w - - 0 1"));
+        final SearchResult result = new Search(board).search(4, 0);
+        assertEquals("e1e8", Move.toString(result.getBestMove()), "Back rank mate.");
+        assertEquals(Evaluation.MATE - 1, result.getScore());
+        assertTrue(result.toString().contains("score mate 1"));
+
+        // Mate in two with two rooks
+        assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN("7k/8/8/8/8/8/R7/1R4K1 w - - 0 1"));
+        final SearchResult mateInTwo = new Search(board).search(5, 0);
+        assertEquals(Evaluation.MATE - 3, mateInTwo.getScore());
+        assertEquals(3, mateInTwo.getPrincipalVariation().length);
+    }
+
+    @Test
+    public void testWinsMaterial() {
+        assertDoesNotThrow(
+                () -> board = FENParser.getBoardFromFEN("rnb1kbnr/pppp1ppp/8/4p1q1/4P3/3P4/PPP2PPP/RNBQKBNR w KQkq - 1 3"));
+        final SearchResult result = new Search(board).search(3, 0);
+        assertEquals("c1g5", Move.toString(result.getBestMove()), "The queen is hanging.");
+        assertTrue(result.getScore() > 500);
+    }
+
+    @Test
+    public void testPrincipalVariationIsLegal() {
+        assertDoesNotThrow(() -> board = FENParser
+                .getBoardFromFEN("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"));
+        final String FENString = board.getFEN();
+        final SearchResult result = new Search(board).search(4, 0);
+        assertEquals(4, result.getDepth());
+        assertEquals(FENString, board.getFEN(), "The search should not change the board.");
+
+        for (final int move : result.getPrincipalVariation()) {
+            assertTrue(board.isLegal(move), Move.toString(move) + " in the PV is not legal.");
+            board.makeMove(move);
+        }
+    }
+
+    @Test
+    public void testStaticExchange() {
+        final int[] gain = new int[StaticExchange.MAX_CAPTURES];
+        // A pawn takes a knight defended by a pawn
+        assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN("4k3/8/3p4/4n3/3P4/8/8/4K3 w - - 0 1"));
+        assertEquals(220, StaticExchange.evaluate(board, Move.of(27, 36), gain));
+
+        // A queen takes a pawn defended by a pawn
+        assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN("4k3/8/3p4/4p3/8/8/8/4Q1K1 w - - 0 1"));
+        assertEquals(-800, StaticExchange.evaluate(board, Move.of(4, 36), gain));
+
+        // The rook behind the first rook takes back
+        assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN("4r1k1/8/8/4p3/8/8/4R3/4R1K1 w - - 0 1"));
+        assertEquals(100, StaticExchange.evaluate(board, Move.of(12, 36), gain));
+
+        // The king can not take back on a defended square
+        assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN("8/8/8/4k3/3p4/8/1B6/3RK3 w - - 0 1"));
+        assertEquals(100, StaticExchange.evaluate(board, Move.of(9, 27), gain));
+        assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN("8/8/8/4k3/3p4/8/1B6/4K3 w - - 0 1"));
+        assertEquals(-230, StaticExchange.evaluate(board, Move.of(9, 27), gain));
+        assertEquals(0, StaticExchange.evaluate(board, Move.of(4, 5), gain), "A quiet move wins nothing.");
+    }
+
+    @Test
+    public void testQuiescence() {
+        // Without looking at the recapture, taking the pawn looks good at depth 1
+        assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN("4k3/8/3p4/4p3/8/8/8/4Q1K1 w - - 0 1"));
+        final SearchResult result = new Search(board).search(1, 0);
+        assertFalse(Move.toString(result.getBestMove()).equals("e1e5"), "The queen would be lost.");
+        assertTrue(result.getScore() > 500);
+    }
+
+    @Test
+    public void testMovePicker() {
+        assertDoesNotThrow(() -> board = FENParser
+                .getBoardFromFEN("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"));
+        final MoveList legal = new MoveList();
+        board.generateLegalMoves(legal);
+
+        final int hashMove = Move.of(4, 6, Move.CASTLE);
+        final int killer = Move.of(0, 1);
+        // Not legal here, and a capture, so neither is given as a killer
+        final int[] killers = { Move.of(8, 32), Move.of(21, 45) };
+        final int[][] history = new int[64][64];
+        history[9][17] = 100;
+        final MovePicker picker = new MovePicker(board);
+        picker.reset(hashMove, killers, history);
+
+        final List<Integer> picked = new ArrayList<Integer>();
+        for (int move = picker.next(); move != Move.NONE; move = picker.next()) {
+            assertFalse(picked.contains(move), Move.toString(move) + " is given twice.");
+            assertTrue(legal.contains(move), Move.toString(move) + " is not legal.");
+            picked.add(move);
+        }
+        assertEquals(legal.size(), picked.size());
+        assertEquals(hashMove, picked.get(0));
+        assertEquals("e2a6", Move.toString(picked.get(1)), "The bishop is the most valuable victim.");
+        assertEquals("f3f6", Move.toString(picked.get(2)));
+
+        int quiets = 1;
+        while (!MovePicker.isQuiet(board, picked.get(quiets))) {
+            quiets++;
+        }
+        assertEquals("f3h3", Move.toString(picked.get(quiets - 1)), "The queen is the most valuable attacker.");
+        assertEquals("b2b3", Move.toString(picked.get(quiets)), "The move with the best history is first.");
+
+        // A killer comes right after the captures
+        killers[0] = killer;
+        picker.reset(Move.NONE, killers, null);
+        for (int i = 1; i < quiets; i++) {
+            assertFalse(MovePicker.isQuiet(board, picker.next()));
+        }
+        assertEquals(killer, picker.next());
+
+        // The castle is given once, not also as a killer or hash move without the flag
+        killers[1] = Move.of(4, 6);
+        picker.reset(Move.of(4, 2), killers, history);
+        picked.clear();
+        for (int move = picker.next(); move != Move.NONE; move = picker.next()) {
+            assertFalse(picked.contains(move), Move.toString(move) + " is given twice.");
+            picked.add(move);
+        }
+        assertEquals(legal.size(), picked.size());
+    }
+
+    @Test
+    public void testTimeLimit() {
+        board = FENParser.getBoardFromDefaultFEN();
+        final long start = System.currentTimeMillis();
+        final SearchResult result = new Search(board).search(Search.MAX_PLY, 200);
+        assertTrue(System.currentTimeMillis() - start < 2000, "The search should stop when the time is up.");
+        assertTrue(board.isLegal(result.getBestMove()));
+        assertTrue(result.getDepth() >= 1);
+    }
+
+    @Test
+    public void testTranspositionTable() {
+        final TranspositionTable table = new TranspositionTable(1);
+        assertEquals(65536, table.getSize(), "One megabyte holds 2^16 entries of 16 bytes.");
+
+        final int move = Move.of(12, 28);
+        table.store(0x1234_5678_9ABC_DEF0L, move, -250, 7, TranspositionTable.UPPER);
+        final long entry = table.probe(0x1234_5678_9ABC_DEF0L);
+        assertEquals(move, TranspositionTable.getMove(entry));
+        assertEquals(-250, TranspositionTable.getScore(entry));
+        assertEquals(7, TranspositionTable.getDepth(entry));
+        assertEquals(TranspositionTable.UPPER, TranspositionTable.getBound(entry));
+        assertEquals(TranspositionTable.MISS, table.probe(0x1234_5678_9ABC_DEF1L));
+
+        // A result without a move keeps the move of the position
+        table.store(0x1234_5678_9ABC_DEF0L, Move.NONE, 100, 8, TranspositionTable.LOWER);
+        assertEquals(move, TranspositionTable.getMove(table.probe(0x1234_5678_9ABC_DEF0L)));
+        assertEquals(100, TranspositionTable.getScore(table.probe(0x1234_5678_9ABC_DEF0L)));
+
+        // A shallower bound does not replace a deeper entry of this search, but
+        // gives it its move
+        final int other = Move.of(11, 27);
+        table.store(0x1234_5678_9ABC_DEF0L, other, -30, 3, TranspositionTable.UPPER);
+        long kept = table.probe(0x1234_5678_9ABC_DEF0L);
+        assertEquals(other, TranspositionTable.getMove(kept));
+        assertEquals(100, TranspositionTable.getScore(kept));
+        assertEquals(8, TranspositionTable.getDepth(kept));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.getBound(kept));
+
+        // An exact score, or any score in a new search, replaces it
+        table.store(0x1234_5678_9ABC_DEF0L, Move.NONE, 40, 3, TranspositionTable.EXACT);
+        assertEquals(3, TranspositionTable.getDepth(table.probe(0x1234_5678_9ABC_DEF0L)));
+        table.store(0x1234_5678_9ABC_DEF0L, move, 0, 9, TranspositionTable.LOWER);
+        table.newSearch();
+        table.store(0x1234_5678_9ABC_DEF0L, Move.NONE, -30, 2, TranspositionTable.UPPER);
+        kept = table.probe(0x1234_5678_9ABC_DEF0L);
+        assertEquals(2, TranspositionTable.getDepth(kept));
+        assertEquals(move, TranspositionTable.getMove(kept));
+    }
+
+    @Test
+    public void testReplacement() {
+        final TranspositionTable table = new TranspositionTable(1);
+        final long step = table.getSize() / 4;
+
+        // Five positions in the same bucket of four: the shallowest is replaced
+        for (int i = 0; i < 4; i++) {
+            table.store(i * step, Move.NONE, 0, 10 + i, TranspositionTable.EXACT);
+        }
+        table.store(4 * step, Move.NONE, 0, 1, TranspositionTable.EXACT);
+        assertEquals(TranspositionTable.MISS, table.probe(0));
+        assertEquals(11, TranspositionTable.getDepth(table.probe(step)));
+
+        // Entries from an earlier search are replaced before deeper ones from this
+        // search
+        table.newSearch();
+        table.store(5 * step, Move.NONE, 0, 5, TranspositionTable.EXACT);
+        assertEquals(TranspositionTable.MISS, table.probe(4 * step), "The old, shallow entry goes first.");
+        table.store(6 * step, Move.NONE, 0, 5, TranspositionTable.EXACT);
+        assertEquals(TranspositionTable.MISS, table.probe(step), "The old depth 11 entry goes before depth 5.");
+        assertEquals(5, TranspositionTable.getDepth(table.probe(5 * step)));
+        assertEquals(13, TranspositionTable.getDepth(table.probe(3 * step)));
+    }
+
+    @Test
+    public void testConcurrentTableAccess() throws InterruptedException {
+        final TranspositionTable table = new TranspositionTable(1);
+        final AtomicBoolean wrong = new AtomicBoolean(false);
+        final Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int thread = t + 1;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 200_000; i++) {
+                    // Every thread writes its own data for the same few keys
+                    final long key = (i % 64) * 0x9E37_79B9_7F4A_7C15L;
+                    table.store(key, thread, thread, thread, TranspositionTable.EXACT);
+                    final long entry = table.probe(key);
+                    if (entry != TranspositionTable.MISS && (TranspositionTable.getMove(entry) != TranspositionTable
+                            .getScore(entry) || TranspositionTable.getScore(entry) != TranspositionTable.getDepth(entry)))
+                        wrong.set(true);
+                }
+            });
+            threads[t].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        assertFalse(wrong.get(), "An entry was read with data from two writes.");
+    }
+
+    @Test
+    public void testParallelSearch() {
+        assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN("7k/8/8/8/8/8/R7/1R4K1 w - - 0 1"));
+        final ParallelSearch search = new ParallelSearch(board, 3);
+        final SearchResult result = search.search(5, 0);
+        assertEquals(Evaluation.MATE - 3, result.getScore());
+        assertTrue(board.isLegal(result.getBestMove()));
+
+        final long[] nodes = search.getThreadNodes();
+        assertEquals(3, nodes.length);
+        assertEquals(nodes[0] + nodes[1] + nodes[2], result.getNodes());
+        assertEquals(3, search.getThreadNodesPerSecond().length);
+    }
+
+    @Test
+    public void testParallelSearchSpreadsDepths() {
+        assertDoesNotThrow(() -> board = FENParser
+                .getBoardFromFEN("r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N1PN2/PP3PPP/R2QKB1R w KQ - 0 8"));
+        final ParallelSearch search = new ParallelSearch(board, 4);
+        final SearchResult result = search.search(Search.MAX_PLY - 1, 500);
+        assertTrue(board.isLegal(result.getBestMove()));
+
+        final int[] depths = search.getThreadDepths();
+        assertEquals(4, depths.length);
+        assertEquals(result.getDepth(), depths[0]);
+        for (final int depth : depths) {
+            assertTrue(depth > 0);
+        }
+        // The first helper only searches even depths and the second only odd ones
+        assertEquals(0, depths[1] % 2);
+        assertEquals(1, depths[2] % 2);
+    }
+}
@@ -0,0 +1,76 @@
+package sjakk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import sjakk.engine.Perft;
+import sjakk.utils.FENParser;
+
+public class SharedChessBoardTest {
+
+    @Test
+    public void testMovesArePublished() {
+        final SharedChessBoard shared = new SharedChessBoard(FENParser.getBoardFromDefaultFEN());
+        final long version = shared.getVersion();
+
+        shared.move(new Position("e2"), new Position("e4"), null);
+        assertEquals(version + 1, shared.getVersion());
+        assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", shared.getSnapshot().getFEN());
+        assertEquals(20L, (long) shared.query(board -> Perft.perft(board, 1)));
+
+        assertThrows(IllegalArgumentException.class, () -> shared.move(new Position("e4"), new Position("e5"), null),
+                "It is not white's turn.");
+        assertThrows(IllegalArgumentException.class, () -> shared.move(new Position("e7"), new Position("e4"), null),
+                "Illegal moves are not made.");
+    }
+
+    @Test
+    public void testConcurrentReaders() throws InterruptedException {
+        final SharedChessBoard shared = new SharedChessBoard(FENParser.getBoardFromDefaultFEN());
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final List<Thread> readers = new ArrayList<Thread>();
+        final AtomicBoolean done = new AtomicBoolean(false);
+
+        for (int i = 0; i < 4; i++) {
+            final Thread reader = new Thread(() -> {
+                final MoveList moves = new MoveList();
+                try {
+                    while (!done.get()) {
+                        final PositionSnapshot snapshot = shared.generateLegalMoves(moves);
+                        final MoveList expected = new MoveList();
+                        snapshot.toBoard().generateLegalMoves(expected);
+                        if (expected.size() != moves.size())
+                            throw new AssertionError("Moves do not match the snapshot " + snapshot);
+                    }
+                } catch (final Throwable e) {
+                    failure.set(e);
+                }
+            });
+            readers.add(reader);
+            reader.start();
+        }
+
+        // The writer makes and takes back moves, so the game never ends
+        final String[] game = { "e2e4", "g1f3", "d2d4", "b1c3" };
+        for (int i = 0; i < 100; i++) {
+            final String move = game[i % game.length];
+            shared.move(new Position(move.substring(0, 2)), new Position(move.substring(2, 4)), null);
+            shared.unmakeMove();
+        }
+        done.set(true);
+        for (final Thread reader : readers) {
+            reader.join();
+        }
+
+        assertEquals(null, failure.get(), "A reader saw an inconsistent position.");
+        assertEquals(200, shared.getVersion());
+        assertEquals(FENParser.DEFAULT_STRING, shared.getSnapshot().getFEN());
+    }
+}
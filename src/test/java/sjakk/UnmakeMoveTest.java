@@ -0,0 +1,93 @@
+package sjakk;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import sjakk.engine.Perft;
+import sjakk.pieces.Piece;
+import sjakk.utils.FENParser;
+
+public class UnmakeMoveTest {
+    private ChessBoard board;
+
+    /**
+     * Makes and takes back every legal move in the position, checking that the
+     * board is the same afterwards.
+     */
+    private void checkAllMovesRestore() {
+        final String FENString = board.getFEN();
+        final Piece lastMoved = board.getLastPieceMoved();
+        for (final String move : Perft.legalMoves(board)) {
+            final Piece piece = board.getPosition(new Position(move.substring(0, 2)));
+            final int moveCount = piece.getMoveCount();
+            final PieceType promotion = (move.length() == 5 ? PieceType.QUEEN : null);
+
+            board.makeMove(new Position(move.substring(0, 2)), new Position(move.substring(2, 4)), promotion);
+            board.unmakeMove();
+
+            assertEquals(FENString, board.getFEN(), "Board is not restored after " + move);
+            assertEquals(piece, board.getPosition(new Position(move.substring(0, 2))), "Piece is not restored.");
+            assertEquals(moveCount, piece.getMoveCount(), "Move count is not restored after " + move);
+            assertEquals(lastMoved, board.getLastPieceMoved(), "Last moved piece is not restored after " + move);
+        }
+    }
+
+    @Test
+    public void testRestoresEveryMove() {
+        assertDoesNotThrow(() -> board = FENParser
+                .getBoardFromFEN("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"));
+        checkAllMovesRestore();
+
+        assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN("8/8/8/KPp4r/8/8/8/7k w - c6 0 1"));
+        checkAllMovesRestore();
+
+        assertDoesNotThrow(() -> board = FENParser
+                .getBoardFromFEN("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1"));
+        checkAllMovesRestore();
+    }
+
+    @Test
+    public void testCastlingAndCapturedRook() {
+        assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN("r3k2r/8/8/8/8/8/6b1/R3K2R b KQkq - 3 10"));
+
+        // Capturing the rook in its corner removes the castling right of the owner
+        board.makeMove(new Position("g2"), new Position("h1"), null);
+        assertEquals("r3k2r/8/8/8/8/8/8/R3K2b w Qkq - 0 11", board.getFEN());
+
+        board.makeMove(new Position("e1"), new Position("c1"), null);
+        assertEquals("r3k2r/8/8/8/8/8/8/2KR3b b kq - 1 11", board.getFEN());
+
+        board.unmakeMove();
+        board.unmakeMove();
+        assertEquals("r3k2r/8/8/8/8/8/6b1/R3K2R b KQkq - 3 10", board.getFEN());
+        assertEquals(0, board.getPosition(new Position("a1")).getMoveCount(), "The rook should not have moved.");
+    }
+
+    @Test
+    public void testPromotionAndUpgradablePawn() {
+        assertDoesNotThrow(() -> board = FENParser.getBoardFromFEN("1n5k/P7/8/8/8/8/8/7K w - - 0 1"));
+        final String FENString = board.getFEN();
+
+        board.makeMove(new Position("a7"), new Position("b8"), PieceType.KNIGHT);
+        assertEquals("1N5k/8/8/8/8/8/8/7K b - - 0 1", board.getFEN());
+        board.unmakeMove();
+        assertEquals(FENString, board.getFEN());
+
+        // Promotions through the checked path wait for the upgrade
+        board.getPosition(new Position("a7")).move(new Position("a8"));
+        assertEquals(board.getPosition(new Position("a8")), board.getUpgradablePawn());
+        board.unmakeMove();
+        assertNull(board.getUpgradablePawn(), "There is no pawn to upgrade after taking the move back.");
+        assertEquals(FENString, board.getFEN());
+    }
+
+    @Test
+    public void testNothingToUnmake() {
+        board = FENParser.getBoardFromDefaultFEN();
+        assertThrows(IllegalStateException.class, () -> board.unmakeMove());
+    }
+}
@@ -0,0 +1,76 @@
+package sjakk;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+
+import sjakk.utils.FENParser;
+import sjakk.utils.Zobrist;
+
+public class ZobristTest {
+    private ChessBoard board;
+
+    /**
+     * Walks the move tree to the given depth, checking the incremental key against
+     * a key computed from scratch in every position.
+     */
+    private void checkKeys(int depth) {
+        assertEquals(Zobrist.compute(board), board.getZobristKey(), "Wrong key in " + board.getFEN());
+        if (depth == 0)
+            return;
+
+        final long key = board.getZobristKey();
+        final MoveList moves = new MoveList();
+        board.generateLegalMoves(moves);
+        for (int i = 0; i < moves.size(); i++) {
+            board.makeMove(moves.get(i));
+            checkKeys(depth - 1);
+            board.unmakeMove();
+            assertEquals(key, board.getZobristKey(), "Key is not restored after " + Move.toString(moves.get(i)));
+        }
+    }
+
+    @Test
+    public void testIncrementalKeys() {
+        assertDoesNotThrow(() -> board = FENParser
+                .getBoardFromFEN("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"));
+        checkKeys(3);
+
+        assertDoesNotThrow(() -> board = FENParser
+                .getBoardFromFEN("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1"));
+        checkKeys(2);
+    }
+
+    @Test
+    public void testSamePositionSameKey() {
+        board = FENParser.getBoardFromDefaultFEN();
+        final long start = board.getZobristKey();
+
+        board.getPosition(new Position("g1")).move(new Position("f3"));
+        assertNotEquals(start, board.getZobristKey());
+        board.getPosition(new Position("g8")).move(new Position("f6"));
+        board.getPosition(new Position("f3")).move(new Position("g1"));
+        board.getPosition(new Position("f6")).move(new Position("g8"));
+        assertEquals(start, board.getZobristKey(), "The pieces are back where they started.");
+
+        board.getPosition(new Position("e2")).move(new Position("e4"));
+        final ChessBoard parsed = assertDoesNotThrow(() -> FENParser.getBoardFromFEN(board.getFEN()));
+        assertEquals(parsed.getZobristKey(), board.getZobristKey(), "Parsing the FEN should give the same key.");
+    }
+
+    @Test
+    public void testTurnAndCastling() {
+        board = FENParser.getBoardFromDefaultFEN();
+        final long key = board.getZobristKey();
+        board.setTurn(PieceColor.BLACK);
+        assertEquals(key ^ Zobrist.BLACK_TO_MOVE, board.getZobristKey());
+        board.setTurn(PieceColor.BLACK);
+        assertEquals(key ^ Zobrist.BLACK_TO_MOVE, board.getZobristKey(), "Setting the same turn changes nothing.");
+        board.setTurn(PieceColor.WHITE);
+
+        board.disableCastling();
+        assertNotEquals(key, board.getZobristKey(), "Castling rights are part of the key.");
+    }
+}
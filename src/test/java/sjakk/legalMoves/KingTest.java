@@ -69,7 +69,8 @@ public class KingTest extends PieceTest {
         king.move(new Position(2, 0));
 
         assertEquals(board.getPosition(new Position(0, 0)), null);
-        assertEquals(board.getPosition(new Position(3, 0)), rookQueenSide);
+        assertEquals(board.getPosition(new Position(3, 0)).getType(), rookQueenSide.getType());
+        assertEquals(board.getPosition(new Position(3, 0)).getOwner(), rookQueenSide.getOwner());
     }
 
     @Test